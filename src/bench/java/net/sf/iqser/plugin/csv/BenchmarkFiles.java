@@ -0,0 +1,79 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import net.sf.iqser.plugin.csv.test.CsvGenerator;
+import net.sf.iqser.plugin.csv.test.MockContentProviderFacade;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import com.iqser.core.config.ServiceLocatorFactory;
+import com.iqser.gin.developer.test.TestServiceLocator;
+
+/**
+ * The generated CSV files and the content providers of the benchmarks. The files are generated once and kept in the
+ * directory given by the system property <code>benchmark.dir</code>, by default <code>target/benchmark-data</code>,
+ * since generating the larger files takes longer than benchmarking them.
+ */
+final class BenchmarkFiles {
+
+	private BenchmarkFiles() {
+	}
+
+	/**
+	 * Returns the generated file, which is generated if it does not exist.
+	 */
+	static synchronized File get(CsvGenerator generator, double quotedRatio) throws IOException {
+		File directory = new File(System.getProperty("benchmark.dir", "target/benchmark-data"));
+		File file = new File(directory, String.format("generated-%d-%d-%d.csv", generator.getRows(),
+				generator.getColumns(), Math.round(100 * quotedRatio)));
+		if (!file.isFile()) {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Cannot create directory: " + directory);
+			}
+			File tempFile = new File(file.getPath() + ".tmp");
+			generator.write(tempFile);
+			if (!tempFile.renameTo(file)) {
+				throw new IOException("Cannot rename generated file: " + tempFile);
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Returns the init-params of a provider of the generated file.
+	 */
+	static Properties getInitParams(File file, CsvGenerator generator) {
+		Properties initParams = new Properties();
+		initParams.setProperty("file", file.getAbsolutePath());
+		initParams.setProperty("delimeter", String.valueOf(generator.getDelimiter()));
+		initParams.setProperty("charset", "UTF-8");
+		initParams.setProperty("columns.id", "0");
+		initParams.setProperty("column.idAsContentUrl", "true");
+		initParams.setProperty("column.name", "1");
+		initParams.setProperty("columns.key", "1,2");
+		initParams.setProperty("content.type", "Benchmark");
+		initParams.setProperty(CsvContentProvider.CSV_PROPERTY_MULTIVALUEDELIMITERS,
+				generator.getMultiValueDelimiters());
+		return initParams;
+	}
+
+	/**
+	 * Creates and initializes a provider. The repository is an in-memory mock and the logging is reduced to warnings,
+	 * since the per-record log messages would dominate the measurements.
+	 */
+	static CsvContentProvider createProvider(Properties initParams) {
+		LogManager.getLoggerRepository().setThreshold(Level.WARN);
+		((TestServiceLocator) ServiceLocatorFactory.getServiceLocator())
+				.setContentProviderFacade(new MockContentProviderFacade());
+
+		CsvContentProvider provider = new CsvContentProvider();
+		provider.setInitParams(initParams);
+		provider.setName("CSV-BENCHMARK");
+		provider.init();
+		return provider;
+	}
+}
@@ -0,0 +1,122 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.iqser.plugin.csv.CsvContentProvider.Column;
+import net.sf.iqser.plugin.csv.test.CsvGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.iqser.core.model.Content;
+
+/**
+ * Builds content objects from the records of a generated CSV file, which is read from memory. Also measures the parts of
+ * the content building: the attribute names of the columns and the ContentUrls.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ContentBuildingBenchmark {
+
+	/* The records are read again from the beginning after the last one. */
+	private static final int ROWS = 10000;
+
+	@Param({ "8", "32" })
+	private int columns;
+
+	@Param({ "0.0", "0.2" })
+	private double quotedRatio;
+
+	@Param({ "javacsv", "nio" })
+	private String reader;
+
+	private CsvContentProvider provider;
+
+	private byte[] csv;
+
+	private CsvRecordReader csvReader;
+
+	private List<Column> providerColumns;
+
+	private int id;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		CsvGenerator generator = new CsvGenerator(ROWS).withColumns(columns).withQuotedRatio(quotedRatio);
+		File file = BenchmarkFiles.get(generator, quotedRatio);
+		csv = Files.readAllBytes(file.toPath());
+		provider = BenchmarkFiles.createProvider(BenchmarkFiles.getInitParams(file, generator));
+		openReader();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		csvReader.close();
+		provider.destroy();
+	}
+
+	private void openReader() throws IOException {
+		if (null != csvReader) {
+			csvReader.close();
+		}
+		csvReader = CsvRecordReaderType.valueOf(reader.toUpperCase()).open(new ByteArrayInputStream(csv), ';',
+				Charset.forName("UTF-8"));
+		csvReader.readHeaders();
+		providerColumns = provider.getColumns(csvReader);
+	}
+
+	@Benchmark
+	public Content getContentFromCurrentRecord() throws IOException {
+		if (!csvReader.readRecord()) {
+			openReader();
+			csvReader.readRecord();
+		}
+		return provider.getContentFromCurrentRecord(providerColumns, csvReader, 0L);
+	}
+
+	@Benchmark
+	public void getAttributeName(Blackhole blackhole) {
+		for (Column column : providerColumns) {
+			blackhole.consume(column.getAttributeName());
+		}
+	}
+
+	/**
+	 * Creates the columns of the header line, which computes their attribute names.
+	 */
+	@Benchmark
+	public void newColumn(Blackhole blackhole) {
+		for (Column column : providerColumns) {
+			blackhole.consume(new Column(column.getIndex(), column.getName()));
+		}
+	}
+
+	@Benchmark
+	public String createContentUrl() throws UnsupportedEncodingException {
+		id = ROWS > id ? id + 1 : 1;
+		return provider.createContentUrl(null, "ID", String.valueOf(id));
+	}
+}
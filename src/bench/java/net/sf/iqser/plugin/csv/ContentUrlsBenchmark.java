@@ -0,0 +1,79 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.iqser.plugin.csv.test.CsvGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a generated CSV file completely with getContentUrls(). Every invocation parses the file again, so the score
+ * is the time of a full parse.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx16g", "-XX:MaxDirectMemorySize=16g" })
+@State(Scope.Benchmark)
+public class ContentUrlsBenchmark {
+
+	@Param({ "10000", "1000000", "10000000" })
+	private int rows;
+
+	@Param({ "8", "32" })
+	private int columns;
+
+	@Param({ "0.0", "0.2" })
+	private double quotedRatio;
+
+	@Param({ "javacsv", "nio" })
+	private String reader;
+
+	/* The content objects of 10 million rows only fit into the heap in packed storage. */
+	@Param({ "packed" })
+	private String storage;
+
+	private CsvContentProvider provider;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		CsvGenerator generator = new CsvGenerator(rows).withColumns(columns).withQuotedRatio(quotedRatio);
+		File file = BenchmarkFiles.get(generator, quotedRatio);
+		Properties initParams = BenchmarkFiles.getInitParams(file, generator);
+		initParams.setProperty(CsvContentProvider.CSV_PROPERTY_PARSEREADER, reader);
+		initParams.setProperty(CsvContentProvider.CSV_PROPERTY_CONTENTSTORAGE, storage);
+		provider = BenchmarkFiles.createProvider(initParams);
+	}
+
+	@Setup(Level.Invocation)
+	public void forgetParsedFile() {
+		CsvContentProvider.clearCache();
+		provider.init();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		provider.destroy();
+	}
+
+	@Benchmark
+	public int getContentUrls() {
+		return provider.getContentUrls().size();
+	}
+}
@@ -0,0 +1,96 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iqser.core.model.Attribute;
+import com.iqser.core.model.Content;
+
+/**
+ * Compares content objects like the synchronization compares a record with the existing content object. The other
+ * content object has the same attributes in a different order, as it may be returned by the repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EqualityBenchmark {
+
+	@Param({ "8", "32", "128" })
+	private int attributes;
+
+	/* The number of values of every third attribute. */
+	@Param({ "1", "4" })
+	private int multiValues;
+
+	private Content content;
+
+	private Content equalContent;
+
+	private Content modifiedContent;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		content = createContent(new Random(42L), false, false);
+		equalContent = createContent(new Random(42L), true, false);
+		modifiedContent = createContent(new Random(42L), true, true);
+	}
+
+	/*
+	 * Creates a content object, whose attributes are optionally added in reverse order. The last attribute of a
+	 * modified content object has an additional value.
+	 */
+	private Content createContent(Random random, boolean reversed, boolean modified) {
+		Content newContent = new Content();
+		newContent.setContentUrl("4711");
+		newContent.setProvider("CSV-BENCHMARK");
+		newContent.setType("Benchmark");
+		newContent.setFulltext("Benchmark record 4711");
+		newContent.setModificationDate(random.nextLong());
+
+		Attribute[] newAttributes = new Attribute[attributes];
+		for (int i = 0; i < attributes; i++) {
+			Attribute attribute = new Attribute();
+			attribute.setName("COLUMN_" + i);
+			attribute.setType(Attribute.ATTRIBUTE_TYPE_TEXT);
+			attribute.setKey(0 == i % 4);
+			int values = 0 == i % 3 ? multiValues : 1;
+			for (int j = 0; j < values; j++) {
+				attribute.addValue("value " + random.nextInt(1000));
+			}
+			if (modified && attributes - 1 == i) {
+				attribute.addValue("modified");
+			}
+			newAttributes[i] = attribute;
+		}
+		for (int i = 0; i < attributes; i++) {
+			newContent.addAttribute(newAttributes[reversed ? attributes - 1 - i : i]);
+		}
+		return newContent;
+	}
+
+	@Benchmark
+	public boolean equal() {
+		return CsvContentProvider.equalIgnoringModificationDate(content, equalContent);
+	}
+
+	@Benchmark
+	public boolean modified() {
+		return CsvContentProvider.equalIgnoringModificationDate(content, modifiedContent);
+	}
+}
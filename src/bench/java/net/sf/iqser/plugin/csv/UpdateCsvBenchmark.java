@@ -0,0 +1,90 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.iqser.plugin.csv.test.CsvGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iqser.core.model.Attribute;
+import com.iqser.core.model.Content;
+
+/**
+ * Writes an updated content object to a copy of a generated CSV file with updateCsv(). The updated value has the same
+ * length as the original one, if <code>sameLength</code> is true, so that the record can be overwritten in place,
+ * otherwise the rest of the file is rewritten.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UpdateCsvBenchmark {
+
+	@Param({ "10000", "1000000" })
+	private int rows;
+
+	@Param({ "true", "false" })
+	private boolean recordIndex;
+
+	@Param({ "true" })
+	private boolean sameLength;
+
+	private File file;
+
+	private CsvContentProvider provider;
+
+	private final Random random = new Random(42L);
+
+	private long updates;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		CsvGenerator generator = new CsvGenerator(rows);
+		File generatedFile = BenchmarkFiles.get(generator, 0.1);
+		file = File.createTempFile("update-csv-benchmark-", ".csv");
+		Files.copy(generatedFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		Properties initParams = BenchmarkFiles.getInitParams(file, generator);
+		initParams.setProperty(CsvContentProvider.CSV_PROPERTY_RECORDINDEX, String.valueOf(recordIndex));
+		initParams.setProperty(CsvContentProvider.CSV_PROPERTY_CONTENTSTORAGE, "packed");
+		provider = BenchmarkFiles.createProvider(initParams);
+		provider.getContentUrls();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		provider.destroy();
+		file.delete();
+		new File(file.getPath() + CsvContentProvider.CSV_RECORD_INDEX_SUFFIX).delete();
+	}
+
+	@Benchmark
+	public void updateCsv() {
+		Content content = provider.createContent(String.valueOf(1 + random.nextInt(rows)));
+		Attribute attribute = content.getAttributeByName("COLUMN_2");
+		updates++;
+		attribute.setValue(sameLength ? String.valueOf(updates % 10) + attribute.getValue().substring(1) : attribute
+				.getValue() + updates);
+		provider.updateCsv(content);
+	}
+}
@@ -0,0 +1,118 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Position behind the last complete record of an append-only CSV file. Besides the offset, the checkpoint keeps hashes
+ * of the header line and of the bytes directly before the offset, which are used to detect whether the file has been
+ * rewritten instead of appended to.
+ */
+public class AppendCheckpoint {
+
+	/* The number of bytes before the offset that are compared to detect rewritten files. */
+	private static final int ANCHOR_LENGTH = 4096;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final String[] headers;
+	private final long headerEnd;
+	private final long headerHash;
+	private final long offset;
+	private final long anchorHash;
+
+	private AppendCheckpoint(String[] headers, long headerEnd, long headerHash, long offset, long anchorHash) {
+		this.headers = headers;
+		this.headerEnd = headerEnd;
+		this.headerHash = headerHash;
+		this.offset = offset;
+		this.anchorHash = anchorHash;
+	}
+
+	/**
+	 * Creates a checkpoint for the given file.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @param headers
+	 *            the column headers of the file
+	 * @param headerEnd
+	 *            the offset directly behind the header line
+	 * @param offset
+	 *            the offset directly behind the last complete record
+	 * @return the checkpoint or null, if no complete record follows the header line
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public static AppendCheckpoint create(File file, String[] headers, long headerEnd, long offset)
+			throws IOException {
+		if (headerEnd <= 0 || offset < headerEnd) {
+			return null;
+		}
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return new AppendCheckpoint(headers, headerEnd, hash(randomAccessFile, 0, headerEnd), offset, hash(
+					randomAccessFile, anchorStart(headerEnd, offset), offset));
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Checks whether the file still starts with the same header line and the same bytes before the offset, that is
+	 * whether the file has only been appended to since the checkpoint has been created.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @return true, if the records after the offset can be read incrementally
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public boolean isValidFor(File file) throws IOException {
+		if (file.length() < offset) {
+			return false;
+		}
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return headerHash == hash(randomAccessFile, 0, headerEnd)
+					&& anchorHash == hash(randomAccessFile, anchorStart(headerEnd, offset), offset);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	public String[] getHeaders() {
+		return headers.clone();
+	}
+
+	public long getHeaderEnd() {
+		return headerEnd;
+	}
+
+	public long getOffset() {
+		return offset;
+	}
+
+	private static long anchorStart(long headerEnd, long offset) {
+		return Math.max(headerEnd, offset - ANCHOR_LENGTH);
+	}
+
+	private static long hash(RandomAccessFile randomAccessFile, long start, long end) throws IOException {
+		byte[] buffer = new byte[(int) Math.min(ANCHOR_LENGTH, end - start)];
+		long hash = FNV_OFFSET_BASIS;
+		randomAccessFile.seek(start);
+		long remaining = end - start;
+		while (remaining > 0) {
+			int length = (int) Math.min(buffer.length, remaining);
+			randomAccessFile.readFully(buffer, 0, length);
+			for (int i = 0; i < length; i++) {
+				hash ^= buffer[i] & 0xff;
+				hash *= FNV_PRIME;
+			}
+			remaining -= length;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,349 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Checksums of the blocks of a CSV file. A block consists of whole records, so that a changed block can be parsed on
+ * its own. The block boundaries are derived from the records' contents, not from their offsets: a record ends a block
+ * with a probability proportional to its length, which is decided by its checksum. Thus inserting or removing records
+ * only changes the blocks around the edit, and all other blocks keep their checksums, even if they have moved.
+ * <p>
+ * The ContentUrls of the records of every block are kept, so that the records of a changed block can be compared to
+ * the records that have been read from it before.
+ */
+public class BlockChecksums {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final String[] headers;
+
+	private final long headerChecksum;
+
+	private final long headerEnd;
+
+	private final List<Block> blocks;
+
+	private BlockChecksums(String[] headers, long headerChecksum, long headerEnd, List<Block> blocks) {
+		this.headers = headers;
+		this.headerChecksum = headerChecksum;
+		this.headerEnd = headerEnd;
+		this.blocks = blocks;
+	}
+
+	/**
+	 * Returns the column headers, or null if the checksums have been computed without reading the file.
+	 */
+	public String[] getHeaders() {
+		return null != headers ? headers.clone() : null;
+	}
+
+	/**
+	 * Returns the offset directly behind the header line.
+	 */
+	public long getHeaderEnd() {
+		return headerEnd;
+	}
+
+	/**
+	 * Returns true, if both files have the same header line.
+	 */
+	public boolean hasSameHeader(BlockChecksums other) {
+		return headerChecksum == other.headerChecksum && 0L <= headerEnd && headerEnd == other.headerEnd;
+	}
+
+	public List<Block> getBlocks() {
+		return Collections.unmodifiableList(blocks);
+	}
+
+	/**
+	 * Returns the blocks of this file whose checksums do not occur in the other file. The ContentUrls of the blocks
+	 * whose checksums do occur are copied from the other file.
+	 */
+	public List<Block> getChangedBlocks(BlockChecksums other) {
+		Map<Long, ArrayDeque<Block>> otherBlocks = new HashMap<Long, ArrayDeque<Block>>();
+		for (Block block : other.blocks) {
+			ArrayDeque<Block> sameBlocks = otherBlocks.get(block.checksum);
+			if (null == sameBlocks) {
+				sameBlocks = new ArrayDeque<Block>(1);
+				otherBlocks.put(block.checksum, sameBlocks);
+			}
+			sameBlocks.add(block);
+		}
+
+		List<Block> changedBlocks = new ArrayList<Block>();
+		for (Block block : blocks) {
+			ArrayDeque<Block> sameBlocks = otherBlocks.get(block.checksum);
+			Block sameBlock = null != sameBlocks ? sameBlocks.poll() : null;
+			if (null != sameBlock) {
+				block.contentUrls = sameBlock.contentUrls;
+			} else {
+				changedBlocks.add(block);
+			}
+		}
+		return changedBlocks;
+	}
+
+	/**
+	 * Computes the checksums of the file without parsing it. The blocks have no ContentUrls.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @param headers
+	 *            the column headers that have been read from the file before
+	 * @param delimiter
+	 *            the delimiter of the CSV file
+	 * @param blockSize
+	 *            the average size of a block in bytes
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static BlockChecksums scan(File file, String[] headers, char delimiter, int blockSize) throws IOException {
+		Builder builder = new Builder(delimiter, blockSize);
+		builder.addHeaders(headers);
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int count;
+			while (0 <= (count = inputStream.read(buffer))) {
+				builder.getScanner().scan(buffer, 0, count);
+			}
+		} finally {
+			inputStream.close();
+		}
+		return builder.build(file);
+	}
+
+	/**
+	 * A range of whole records.
+	 */
+	public static final class Block {
+		private final long start;
+		private long end;
+		private long checksum;
+		private List<String> contentUrls = new ArrayList<String>();
+
+		private Block(long start) {
+			this.start = start;
+			this.end = start;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public long getChecksum() {
+			return checksum;
+		}
+
+		public List<String> getContentUrls() {
+			return contentUrls;
+		}
+
+		/**
+		 * Sets the ContentUrls of the block's records after the block has been parsed.
+		 */
+		public void setContentUrls(List<String> contentUrls) {
+			this.contentUrls = contentUrls;
+		}
+	}
+
+	/**
+	 * Computes the checksums while the CSV file is read. The scanner must see all bytes of the file, starting at its
+	 * beginning. If the file is parsed at the same time, every record that is returned by the reader must be added,
+	 * starting with the header line, like with {@link RecordOffsetIndex.Builder}.
+	 */
+	public static class Builder {
+
+		private final int minBlockSize;
+
+		private final int maxBlockSize;
+
+		/* The probability that a record of n bytes ends a block is n / (blockSize - minBlockSize). */
+		private final long boundaryScale;
+
+		private final RecordScanner scanner;
+
+		private final CRC32 crc = new CRC32();
+
+		/* The bytes that are being scanned. */
+		private byte[] bytes;
+		private int bytesOffset;
+		private long bytesStart;
+
+		/* The bytes up to this offset have been added to the checksum. */
+		private long checksummed = 0L;
+
+		private long recordStart = 0L;
+
+		private long lastTerminatorEnd = 0L;
+
+		private boolean headerScanned = false;
+		private long headerChecksum = 0L;
+		private long headerEnd = -1L;
+		private String[] headers;
+
+		private final List<Block> blocks = new ArrayList<Block>();
+
+		/* The blocks of the records that have been scanned but not yet added. */
+		private final ArrayDeque<Block> recordBlocks = new ArrayDeque<Block>();
+
+		/* The ContentUrl of the last record, if it has no terminator and therefore has not been scanned completely. */
+		private String lastContentUrl;
+
+		private boolean headerAdded = false;
+
+		public Builder(char delimiter, int blockSize) {
+			this.minBlockSize = Math.max(1, blockSize / 4);
+			this.maxBlockSize = Math.max(2, 4 * blockSize);
+			this.boundaryScale = Math.max(1L, blockSize - minBlockSize);
+			this.scanner = new RecordScanner(delimiter, 0L) {
+				@Override
+				public void scan(byte[] b, int offset, int length) {
+					bytes = b;
+					bytesOffset = offset;
+					bytesStart = getPosition();
+					super.scan(b, offset, length);
+					updateChecksum(bytesStart + length);
+				}
+
+				@Override
+				protected void recordEnd(long offset) {
+					super.recordEnd(offset);
+					updateChecksum(offset);
+					terminator(offset);
+				}
+			};
+		}
+
+		public RecordScanner getScanner() {
+			return scanner;
+		}
+
+		/**
+		 * Adds the header line.
+		 */
+		public void addHeaders(String[] headers) {
+			this.headers = headers;
+			headerAdded = true;
+		}
+
+		/**
+		 * Adds the record that has been read last.
+		 *
+		 * @param contentUrl
+		 *            the ContentUrl of the record or null, if the record has none
+		 */
+		public void addRecord(String contentUrl) {
+			Block block = recordBlocks.poll();
+			if (null == block) {
+				lastContentUrl = contentUrl;
+			} else if (null != contentUrl) {
+				block.contentUrls.add(contentUrl);
+			}
+		}
+
+		private void updateChecksum(long offset) {
+			if (offset > checksummed) {
+				crc.update(bytes, bytesOffset + (int) (checksummed - bytesStart), (int) (offset - checksummed));
+				checksummed = offset;
+			}
+		}
+
+		/*
+		 * Called for every record terminator. A terminator directly behind another one is an empty line, which is
+		 * skipped by the reader. Its bytes are added to the next record.
+		 */
+		private void terminator(long offset) {
+			boolean emptyLine = 1L == offset - lastTerminatorEnd;
+			lastTerminatorEnd = offset;
+			if (!emptyLine) {
+				record(offset);
+			}
+		}
+
+		/*
+		 * Adds the record that ends at the given offset and returns its block, or null for the header line.
+		 */
+		private Block record(long end) {
+			long recordChecksum = crc.getValue();
+			long length = end - recordStart;
+			crc.reset();
+			recordStart = end;
+
+			if (!headerScanned) {
+				headerScanned = true;
+				headerChecksum = (recordChecksum << 32) ^ length;
+				headerEnd = end;
+				blocks.add(new Block(end));
+				return null;
+			}
+
+			Block block = blocks.get(blocks.size() - 1);
+			block.end = end;
+			block.checksum = mix(31L * block.checksum + ((recordChecksum << 32) ^ length));
+			recordBlocks.add(block);
+
+			long blockLength = end - block.start;
+			if (blockLength >= maxBlockSize
+					|| blockLength >= minBlockSize && recordChecksum * boundaryScale < length << 32) {
+				blocks.add(new Block(end));
+			}
+			return block;
+		}
+
+		/**
+		 * Returns the checksums after the whole file has been scanned.
+		 *
+		 * @throws IOException
+		 *             if the file has been changed while it was read
+		 */
+		public BlockChecksums build(File file) throws IOException {
+			if (file.length() != scanner.getPosition()) {
+				throw new IOException("CSV file has been changed while it was read");
+			}
+			long end = scanner.getPosition();
+			if (end > lastTerminatorEnd) {
+				// the last record has no terminator
+				Block block = record(end);
+				if (null != block && null != lastContentUrl) {
+					block.contentUrls.add(lastContentUrl);
+				}
+			} else if (end > recordStart && !blocks.isEmpty()) {
+				// trailing empty lines
+				Block block = blocks.get(blocks.size() - 1);
+				block.end = end;
+				block.checksum = mix(31L * block.checksum + ((crc.getValue() << 32) ^ (end - recordStart)));
+			}
+
+			// the last block is empty, unless the file ends with the maximum block size
+			List<Block> nonEmptyBlocks = new ArrayList<Block>(blocks.size());
+			for (Block block : blocks) {
+				if (block.end > block.start) {
+					nonEmptyBlocks.add(block);
+				}
+			}
+			return new BlockChecksums(headerAdded ? headers : null, headerChecksum, headerEnd, nonEmptyBlocks);
+		}
+
+		private static long mix(long hash) {
+			hash ^= hash >>> 33;
+			hash *= 0xff51afd7ed558ccdL;
+			hash ^= hash >>> 33;
+			return hash;
+		}
+	}
+}
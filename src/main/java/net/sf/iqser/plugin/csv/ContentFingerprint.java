@@ -0,0 +1,98 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.Collection;
+
+import com.iqser.core.model.Attribute;
+import com.iqser.core.model.Content;
+
+/**
+ * Computes 64 bit fingerprints of content objects. Two content objects that are equal according to
+ * {@link CsvContentProvider#equalIgnoringModificationDate(Content, Content)} always have the same fingerprint. The
+ * order of the attributes does not influence the fingerprint.
+ */
+public final class ContentFingerprint {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final long NULL_MARKER = 0x9e3779b97f4a7c15L;
+
+	private ContentFingerprint() {
+	}
+
+	/**
+	 * Returns the fingerprint of the content's ContentUrl, provider, type, fulltext and attributes. The modification
+	 * date is ignored.
+	 *
+	 * @param content
+	 *            the content object
+	 * @return the fingerprint
+	 */
+	public static long of(Content content) {
+		long hash = FNV_OFFSET_BASIS;
+		hash = update(hash, content.getContentUrl());
+		hash = update(hash, content.getProvider());
+		hash = update(hash, content.getType());
+		hash = update(hash, content.getFulltext());
+
+		Collection<Attribute> attributes = content.getAttributes();
+		if (null != attributes) {
+			// summing up the mixed attribute hashes makes the fingerprint independent of the attribute order
+			long attributesHash = 0L;
+			for (Attribute attribute : attributes) {
+				attributesHash += mix(of(attribute));
+			}
+			hash = update(hash, attributesHash + attributes.size());
+		} else {
+			hash = update(hash, NULL_MARKER);
+		}
+		return mix(hash);
+	}
+
+	/**
+	 * Returns the fingerprint of the attribute's name, values, type and key flag.
+	 *
+	 * @param attribute
+	 *            the attribute
+	 * @return the fingerprint
+	 */
+	public static long of(Attribute attribute) {
+		long hash = FNV_OFFSET_BASIS;
+		hash = update(hash, attribute.getName());
+		for (String value : attribute.getValues()) {
+			hash = update(hash, value);
+		}
+		hash = update(hash, attribute.getType());
+		hash = update(hash, attribute.isKey() ? 1L : 2L);
+		return hash;
+	}
+
+	static long update(long hash, String value) {
+		if (null == value) {
+			return update(hash, NULL_MARKER);
+		}
+		long result = hash;
+		for (int i = 0; i < value.length(); i++) {
+			result ^= value.charAt(i);
+			result *= FNV_PRIME;
+		}
+		// the length separates consecutive values, so that ("ab", "c") and ("a", "bc") differ
+		return update(result, value.length());
+	}
+
+	static long update(long hash, long value) {
+		return (hash ^ mix(value)) * FNV_PRIME;
+	}
+
+	/*
+	 * The finalization step of MurmurHash3, which spreads every input bit over the whole result.
+	 */
+	static long mix(long value) {
+		long result = value;
+		result ^= result >>> 33;
+		result *= 0xff51afd7ed558ccdL;
+		result ^= result >>> 33;
+		result *= 0xc4ceb9fe1a85ec53L;
+		result ^= result >>> 33;
+		return result;
+	}
+}
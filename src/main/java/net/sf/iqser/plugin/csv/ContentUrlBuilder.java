@@ -0,0 +1,121 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Builds ContentUrls of the form <code>base/type?column=value&amp;column=value</code>. The prefix and the encoded
+ * column names are computed once and the values are percent-encoded into a reused buffer. The result is the same as
+ * encoding every part with <code>URLEncoder.encode(s, "ISO-8859-1")</code>.
+ */
+public class ContentUrlBuilder {
+
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/* Characters that are not encoded by URLEncoder. */
+	private static final boolean[] UNRESERVED = new boolean[128];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			UNRESERVED[c] = true;
+		}
+		for (char c = 'A'; c <= 'Z'; c++) {
+			UNRESERVED[c] = true;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			UNRESERVED[c] = true;
+		}
+		UNRESERVED['-'] = true;
+		UNRESERVED['_'] = true;
+		UNRESERVED['.'] = true;
+		UNRESERVED['*'] = true;
+	}
+
+	private final String prefix;
+
+	private final ConcurrentMap<String, String> encodedColumnNames = new ConcurrentHashMap<String, String>();
+
+	private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
+	/**
+	 * @param base
+	 *            the base URI of the ContentUrls
+	 * @param contentType
+	 *            the content type, which is added to the base URI in lower case
+	 */
+	public ContentUrlBuilder(String base, String contentType) {
+		StringBuilder builder = new StringBuilder(base).append('/');
+		encode(contentType.toLowerCase(), builder);
+		prefix = builder.append('?').toString();
+	}
+
+	/**
+	 * Appends a column and its value to the ContentUrl.
+	 *
+	 * @param existingContentUrl
+	 *            the ContentUrl with the preceding id columns or null, if this is the first id column
+	 * @param columnName
+	 *            the name of the id column
+	 * @param value
+	 *            the value of the id column
+	 * @return the new ContentUrl
+	 */
+	public String append(String existingContentUrl, String columnName, String value) {
+		StringBuilder builder = buffers.get();
+		builder.setLength(0);
+		if (null == existingContentUrl || existingContentUrl.isEmpty()) {
+			builder.append(prefix);
+		} else {
+			builder.append(existingContentUrl).append('&');
+		}
+		builder.append(getEncodedColumnName(columnName)).append('=');
+		encode(value, builder);
+		return builder.toString();
+	}
+
+	private String getEncodedColumnName(String columnName) {
+		String encodedColumnName = encodedColumnNames.get(columnName);
+		if (null == encodedColumnName) {
+			encodedColumnName = encode(columnName);
+			encodedColumnNames.putIfAbsent(columnName, encodedColumnName);
+		}
+		return encodedColumnName;
+	}
+
+	/**
+	 * Encodes the string like <code>URLEncoder.encode(s, "ISO-8859-1")</code>.
+	 */
+	public static String encode(String s) {
+		StringBuilder builder = new StringBuilder(s.length() + 16);
+		encode(s, builder);
+		return builder.toString();
+	}
+
+	/**
+	 * Appends the string encoded like <code>URLEncoder.encode(s, "ISO-8859-1")</code> to the builder. Characters that
+	 * cannot be encoded in ISO-8859-1, surrogate pairs included, are replaced by an encoded question mark.
+	 */
+	public static void encode(String s, StringBuilder builder) {
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 128 && UNRESERVED[c]) {
+				builder.append(c);
+			} else if (' ' == c) {
+				builder.append('+');
+			} else if (c <= 0xff) {
+				builder.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+			} else {
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+					i++;
+				}
+				builder.append("%3F");
+			}
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package net.sf.iqser.plugin.csv;
+
+/**
+ * Bloom filter of ContentUrls. A ContentUrl that has been added is always reported as contained, a ContentUrl that
+ * has not been added is reported as contained with the false positive probability the filter was sized for. The
+ * filter needs about 1.44 * log2(1 / probability) bits per ContentUrl, independent of the length of the ContentUrls.
+ * <p>
+ * The hash functions depend on a seed, so that filters with different seeds have independent false positives.
+ */
+public class ContentUrlFilter {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long[] bits;
+
+	private final long bitCount;
+
+	private final int hashCount;
+
+	private final long seed;
+
+	private int size = 0;
+
+	/**
+	 * @param expectedSize
+	 *            the expected number of ContentUrls
+	 * @param falsePositiveProbability
+	 *            the false positive probability at the expected number of ContentUrls
+	 * @param seed
+	 *            the seed of the hash functions
+	 */
+	public ContentUrlFilter(int expectedSize, double falsePositiveProbability, long seed) {
+		if (0.0 >= falsePositiveProbability || 1.0 <= falsePositiveProbability) {
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1: "
+					+ falsePositiveProbability);
+		}
+		double ln2 = Math.log(2.0);
+		long optimalBitCount = (long) Math.ceil(-Math.max(1, expectedSize) * Math.log(falsePositiveProbability)
+				/ (ln2 * ln2));
+		this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(1L, (optimalBitCount + 63) / 64))];
+		this.bitCount = 64L * bits.length;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / Math.max(1, expectedSize) * ln2));
+		this.seed = seed;
+	}
+
+	/**
+	 * Adds the ContentUrl.
+	 */
+	public void add(String contentUrl) {
+		long hash = hash(contentUrl);
+		long hash1 = hash >>> 32;
+		long hash2 = hash & 0xffffffffL;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+			bits[(int) (bit >>> 6)] |= 1L << bit;
+		}
+		size++;
+	}
+
+	/**
+	 * Returns false, if the ContentUrl has certainly not been added.
+	 */
+	public boolean mightContain(String contentUrl) {
+		long hash = hash(contentUrl);
+		long hash1 = hash >>> 32;
+		long hash2 = hash & 0xffffffffL;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+			if (0L == (bits[(int) (bit >>> 6)] & (1L << bit))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of added ContentUrls.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes of the bit array.
+	 */
+	public long getByteCount() {
+		return 8L * bits.length;
+	}
+
+	private long hash(String contentUrl) {
+		long hash = FNV_OFFSET_BASIS ^ seed;
+		for (int i = 0; i < contentUrl.length(); i++) {
+			hash = (hash ^ contentUrl.charAt(i)) * FNV_PRIME;
+		}
+		// finalizer of MurmurHash3, spreads the bits of short ContentUrls
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
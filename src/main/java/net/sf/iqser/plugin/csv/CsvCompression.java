@@ -0,0 +1,92 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The compression of a CSV file, which is derived from the file name. Compressed files are decompressed while they are
+ * read, so they are never extracted to disk.
+ */
+public enum CsvCompression {
+
+	/** An uncompressed CSV file. */
+	NONE,
+
+	/** A gzip compressed CSV file, e.g. <code>export.csv.gz</code>. */
+	GZIP {
+		@Override
+		protected InputStream decompress(InputStream inputStream) throws IOException {
+			return new GZIPInputStream(inputStream, BUFFER_SIZE);
+		}
+	},
+
+	/** A ZIP archive, whose first file entry is the CSV file. */
+	ZIP {
+		@Override
+		protected InputStream decompress(InputStream inputStream) throws IOException {
+			ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+			ZipEntry entry;
+			while (null != (entry = zipInputStream.getNextEntry())) {
+				if (!entry.isDirectory()) {
+					return zipInputStream;
+				}
+			}
+			throw new IOException("ZIP file does not contain a file");
+		}
+	};
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Returns the compression of the given file.
+	 */
+	public static CsvCompression of(File file) {
+		String name = file.getName().toLowerCase();
+		if (name.endsWith(".gz") || name.endsWith(".gzip")) {
+			return GZIP;
+		}
+		if (name.endsWith(".zip")) {
+			return ZIP;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Returns true, if the file is compressed.
+	 */
+	public boolean isCompressed() {
+		return NONE != this;
+	}
+
+	/**
+	 * Opens the file and returns a stream of the decompressed CSV data.
+	 *
+	 * @param file
+	 *            the CSV file
+	 * @return the decompressed CSV data
+	 * @throws IOException
+	 *             if the file cannot be opened or is not compressed as expected
+	 */
+	public InputStream open(File file) throws IOException {
+		FileInputStream inputStream = new FileInputStream(file);
+		if (!isCompressed()) {
+			return inputStream;
+		}
+		try {
+			return decompress(inputStream);
+		} catch (IOException e) {
+			inputStream.close();
+			throw e;
+		}
+	}
+
+	protected InputStream decompress(InputStream inputStream) throws IOException {
+		return inputStream;
+	}
+}
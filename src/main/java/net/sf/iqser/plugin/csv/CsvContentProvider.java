@@ -12,20 +12,27 @@
 
 package net.sf.iqser.plugin.csv;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
-import java.security.MessageDigest;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -33,12 +40,27 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
+import net.sf.iqser.plugin.csv.SynchronizationStatistics.Counter;
+import net.sf.iqser.plugin.csv.SynchronizationStatistics.Phase;
+
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
@@ -47,7 +69,6 @@ import org.codehaus.jackson.JsonParseException;
 import org.codehaus.jackson.map.JsonMappingException;
 import org.codehaus.jackson.map.ObjectMapper;
 
-import com.csvreader.CsvReader;
 import com.csvreader.CsvWriter;
 import com.iqser.core.exception.IQserException;
 import com.iqser.core.model.Attribute;
@@ -85,8 +106,30 @@ public class CsvContentProvider extends AbstractContentProvider {
 	private static final String CSV_PROPERTY_RECORDASFULLTEXT = "recordAsFulltext";
 	public static final String CSV_PROPERTY_CONTENTURLASHASHEDRECORD = "contenUrlAsHashFromRecord";
 	public static final String CSV_PROPERTY_DIGESTALGORITHMFORCONTENTURLASHASHEDRECORD = "contenUrlAsHashFromRecordDigestAlgorithm";
+	public static final String CSV_PROPERTY_CHARSETFORCONTENTURLASHASHEDRECORD = "contenUrlAsHashFromRecordCharset";
 	public static final String CSV_PROPERTY_MULTIVALUEDELIMITERS = "multiValueDelimiters";
 	public static final String CSV_PROPERTY_FULLTEXTCOLUMNASADDITIONALATTRIBUTE = "fullTextColumnAsAdditionalAttribute";
+	public static final String CSV_PROPERTY_SYNCMODE = "sync.mode";
+	public static final String CSV_PROPERTY_SYNCWINDOW = "sync.window";
+	public static final String CSV_PROPERTY_SYNCPREFETCH = "sync.prefetch";
+	public static final String CSV_PROPERTY_SYNCTHREADS = "sync.threads";
+	public static final String CSV_PROPERTY_SYNCBATCHSIZE = "sync.batchSize";
+	public static final String CSV_PROPERTY_SYNCBATCHINTERVAL = "sync.batchInterval";
+	public static final String CSV_PROPERTY_SYNCBLOCKS = "sync.blockChecksums";
+	public static final String CSV_PROPERTY_SYNCBLOCKSIZE = "sync.blockSize";
+	public static final String CSV_PROPERTY_WATCH = "watch.enabled";
+	public static final String CSV_PROPERTY_WATCHQUIETPERIOD = "watch.quietPeriod";
+	public static final String CSV_PROPERTY_SYNCFINGERPRINTS = "sync.fingerprints";
+	public static final String CSV_PROPERTY_APPENDMODE = "append.mode";
+	public static final String CSV_PROPERTY_PARSETHREADS = "parse.threads";
+	public static final String CSV_PROPERTY_PARSECHUNKSIZE = "parse.chunkSize";
+	public static final String CSV_PROPERTY_PARSEREADER = "parse.reader";
+	public static final String CSV_PROPERTY_SOURCETHREADS = "source.threads";
+	public static final String CSV_PROPERTY_UPDATEDELAY = "update.delay";
+	public static final String CSV_PROPERTY_RECORDINDEX = "record.index";
+	public static final String CSV_PROPERTY_CONTENTSTORAGE = "content.storage";
+	public static final String CSV_PROPERTY_DICTIONARYSIZE = "dictionary.maxSize";
+	public static final String CSV_PROPERTY_HOUSEKEEPINGFALSEPOSITIVES = "housekeeping.falsePositiveProbability";
 
 	public static final String CSV_DEFAULT_DELIMETER = ";";
 	public static final String CSV_DEFAULT_CHARSET = "UTF-8";
@@ -102,15 +145,103 @@ public class CsvContentProvider extends AbstractContentProvider {
 	public static final String CSV_DEFAULT_RECORDASFULLTEXT = "false";
 	public static final String CSV_DEFAULT_CONTENTURLASHASHEDRECORD = "false";
 	public static final String CSV_DEFAULT_DIGESTALGORITHMFORCONTENTURLASHASHEDRECORD = "SHA-1";
+	public static final String CSV_DEFAULT_CHARSETFORCONTENTURLASHASHEDRECORD = "UTF-8";
 	public static final String CSV_DEFAULT_FULLTEXTCOLUMNASADDITIONALATTRIBUTE = "false";
+	public static final String CSV_DEFAULT_SYNCMODE = "memory";
+	public static final String CSV_DEFAULT_SYNCWINDOW = "1000";
+	public static final String CSV_DEFAULT_SYNCPREFETCH = "true";
+	public static final String CSV_DEFAULT_SYNCTHREADS = "1";
+	public static final String CSV_DEFAULT_SYNCBATCHSIZE = "100";
+	public static final String CSV_DEFAULT_SYNCBATCHINTERVAL = "1000";
+	public static final String CSV_DEFAULT_SYNCBLOCKS = "false";
+	public static final String CSV_DEFAULT_SYNCBLOCKSIZE = "1048576";
+	public static final String CSV_DEFAULT_WATCH = "false";
+	public static final String CSV_DEFAULT_WATCHQUIETPERIOD = "500";
+	public static final String CSV_DEFAULT_SYNCFINGERPRINTS = "false";
+	public static final String CSV_DEFAULT_APPENDMODE = "false";
+	public static final String CSV_DEFAULT_PARSETHREADS = "1";
+	public static final String CSV_DEFAULT_PARSECHUNKSIZE = "67108864";
+	public static final String CSV_DEFAULT_PARSEREADER = "javacsv";
+	public static final String CSV_DEFAULT_SOURCETHREADS = "4";
+	public static final String CSV_DEFAULT_UPDATEDELAY = "1000";
+	public static final String CSV_DEFAULT_RECORDINDEX = "false";
+	public static final String CSV_DEFAULT_CONTENTSTORAGE = "objects";
+	public static final String CSV_DEFAULT_DICTIONARYSIZE = "10000";
+	public static final String CSV_DEFAULT_HOUSEKEEPINGFALSEPOSITIVES = "0.001";
+
+	public static final String CSV_SYNCMODE_STREAMING = "streaming";
 
 	public static final String CSV_CONTENT_URI_BASE = "iqser://iqsercsvplugin.sf.net";
 
-	private static final Map<String, Long> MODIFICATION_TIMESTAMP_CACHE = new HashMap<String, Long>();
+	public static final String CSV_FINGERPRINT_STORE_SUFFIX = ".fingerprints";
+
+	/** The suffix of the sidecar file with the record offset index of a CSV file. */
+	public static final String CSV_RECORD_INDEX_SUFFIX = ".index";
+
+	/* Shared by all providers, whose watcher, parse and synchronization threads read and change it concurrently. */
+	private static final Map<String, Long> MODIFICATION_TIMESTAMP_CACHE = new ConcurrentHashMap<String, Long>();
+
+	/* The record length in bytes that sizes a Bloom filter of the ContentUrls of a file that has not been parsed yet. */
+	private static final long ESTIMATED_RECORD_LENGTH = 64L;
 
-	/* The CSV file. */
+	/* The CSV file, the directory of the CSV files or a glob pattern that matches the CSV files. */
 	private File file;
 
+	/* The CSV files that are read. */
+	private CsvFileSource fileSource;
+
+	/* The number of CSV files that are parsed concurrently. */
+	private int sourceThreads;
+
+	/* The queue of updated content objects that are written to the CSV files in the background. */
+	private volatile UpdateQueue updateQueue;
+
+	/* The watcher of the CSV files, which synchronizes changed files as soon as they are quiescent. */
+	private FileWatcher fileWatcher;
+
+	/*
+	 * Synchronizations of the file watcher and of the scheduler, reading the ContentUrls and writing updates run one at
+	 * a time. The writer thread of the update queue acquires it before the write lock of the queue.
+	 */
+	private final Object synchronizationLock = new Object();
+
+	/* The counters and durations of the synchronization phases, which are registered as an MBean. */
+	private final SynchronizationStatistics statistics = new SynchronizationStatistics();
+
+	/* The byte ranges of the records per CSV file, which are used to read and update single records. */
+	private final Map<File, RecordOffsetIndex> recordOffsetIndexes = new ConcurrentHashMap<File, RecordOffsetIndex>();
+
+	/* A boolean flag which indicates whether the record offset indexes are stored in sidecar files. */
+	private boolean recordIndex = false;
+
+	/* The dictionaries of the column values by attribute name. */
+	private final Map<String, ValueDictionary> valueDictionaries = new ConcurrentHashMap<String, ValueDictionary>();
+
+	/* The cardinality cutoff of the value dictionaries, 0 disables them. */
+	private int dictionaryMaxSize;
+
+	/* The false positive probability of the Bloom filter of the ContentUrls in streaming housekeeping. */
+	private double housekeepingFalsePositiveProbability;
+
+	/* The Bloom filters of the ContentUrls per CSV file, which are built while the file is parsed in streaming mode. */
+	private final Map<File, FileContentUrlFilter> contentUrlFilters = new ConcurrentHashMap<File,
+			FileContentUrlFilter>();
+
+	/* The ContentUrls per CSV file in streaming mode, which are read again when the file has been changed. */
+	private final Map<File, FileContentUrls> streamingContentUrls = new ConcurrentHashMap<File, FileContentUrls>();
+
+	/* The checksums of the blocks of records per CSV file, which are used to reparse only changed blocks. */
+	private final Map<File, BlockChecksums> blockChecksums = new ConcurrentHashMap<File, BlockChecksums>();
+
+	/* A boolean flag which indicates whether block checksums are kept. */
+	private boolean syncBlocks = false;
+
+	/* The average size of a block in bytes. */
+	private int syncBlockSize;
+
+	/* The ContentUrls of the content objects in the content map per CSV file. */
+	private final Map<File, Set<String>> fileContentUrls = new HashMap<File, Set<String>>();
+
 	/* The delimeter character of the csv file. */
 	private char delimeter;
 
@@ -140,11 +271,20 @@ public class CsvContentProvider extends AbstractContentProvider {
 	/* A map of content objects with the content's ContentUrl as keys. */
 	private Map<String, Content> contentMap;
 
+	/* The ContentUrls of the content objects that have been read during the last parse of the files. */
+	private Collection<String> syncContentUrls;
+
+	/* A boolean flag which indicates whether syncContentUrls contains the ContentUrls of all records. */
+	private boolean syncContentUrlsComplete;
+
 	/* The charset of the csv file. */
 	private Charset charset;
 
 	private String contentType;
 
+	/* Builds the ContentUrls from the id columns. */
+	private ContentUrlBuilder contentUrlBuilder;
+
 	/* Zero-based list of columns that contains timestamps. */
 	private List<Integer> timestampColumns;
 
@@ -160,9 +300,14 @@ public class CsvContentProvider extends AbstractContentProvider {
 	private boolean contenUrlAsHashFromRecord = false;
 
 	/*
-	 * Message digest, to compute contentUrls from raw CSV records.
+	 * Hasher, to compute contentUrls from raw CSV records.
+	 */
+	private RecordHasher hasherForContenUrlAsHashFromRecord;
+
+	/*
+	 * The charset in which raw CSV records are encoded before they are hashed.
 	 */
-	private MessageDigest digestForContenUrlAsHashFromRecord;
+	private Charset charsetForContenUrlAsHashFromRecord;
 
 	/*
 	 * Mapping from column numbers to multiValue delimiters.
@@ -174,25 +319,79 @@ public class CsvContentProvider extends AbstractContentProvider {
 	 */
 	private boolean fullTextColumnAsAdditionalAttribute = false;
 
-	protected Map<String, Content> getContentMap() {
-		return contentMap;
-	}
+	/*
+	 * If true, the CSV file is read record by record during synchronization and no content objects are kept in the
+	 * content map.
+	 */
+	private boolean streamingMode = false;
 
-	protected void setContentMap(Map<String, Content> contentMap) {
-		this.contentMap = contentMap;
-	}
+	/*
+	 * The maximum number of content objects that are held in memory at once during a streaming synchronization.
+	 */
+	private int syncWindow;
 
 	/*
-	 * Returns a set of existing ContentUrls.
+	 * If true, the existing content objects are loaded once per synchronization instead of querying the repository
+	 * for every record.
 	 */
-	private Set<String> getExistingContentUrls() throws IQserException {
-		Set<String> existingContentUrls = new HashSet<String>();
+	private boolean syncPrefetch = true;
 
-		for (Content content : getExistingContents()) {
-			existingContentUrls.add(content.getContentUrl());
-		}
+	/*
+	 * The number of threads that submit content objects to the repository. If greater than 1, the content objects are
+	 * passed to the threads through a queue of syncWindow content objects.
+	 */
+	private int syncThreads = 1;
+
+	/* Collects the add, update and remove operations and writes them to the repository in batches. */
+	private RepositoryBatch repositoryBatch;
+
+	/*
+	 * Fingerprints of the existing content objects during a synchronization, or null if the repository is queried for
+	 * every record.
+	 */
+	private RepositorySnapshot repositorySnapshot;
+
+	/* A boolean flag which indicates whether the repository snapshot has been loaded during a synchronization. */
+	private boolean repositorySnapshotLoaded = false;
+
+	private final Object repositorySnapshotLock = new Object();
+
+	/*
+	 * Fingerprints of the records that have already been submitted, or null if no fingerprint store is configured.
+	 */
+	private FingerprintStore fingerprintStore;
+
+	/*
+	 * If true, the CSV file is treated as append-only log and only the records appended since the last parse are read.
+	 */
+	private boolean appendMode = false;
+
+	/*
+	 * The positions behind the last complete record that has been read per CSV file. Files without checkpoint must be
+	 * read completely.
+	 */
+	private final Map<File, AppendCheckpoint> appendCheckpoints = new ConcurrentHashMap<File, AppendCheckpoint>();
+
+	/* The number of threads that parse chunks of the CSV file in parallel. */
+	private int parseThreads;
+
+	/* The approximate size of the chunks in bytes, if the CSV file is parsed in parallel. */
+	private long parseChunkSize;
+
+	/* The reader that is used to parse the CSV file. */
+	private CsvRecordReaderType recordReaderType;
+
+	/* The columns of the last header line, which are reused as long as the header line does not change. */
+	private volatile ColumnPlan columnPlan;
+
+	protected Map<String, Content> getContentMap() {
+		return contentMap;
+	}
 
-		return existingContentUrls;
+	protected void setContentMap(Map<String, Content> contentMap) {
+		this.contentMap = contentMap;
+		this.syncContentUrls = contentMap.keySet();
+		this.syncContentUrlsComplete = true;
 	}
 
 	/**
@@ -204,6 +403,16 @@ public class CsvContentProvider extends AbstractContentProvider {
 	public void init() {
 		LOG.info(String.format("Invoking %s#init() ...", this.getClass().getSimpleName()));
 
+		// queued updates are written to the files of the previous configuration, the queue is replaced below
+		if (null != updateQueue) {
+			updateQueue.flush();
+		}
+		if (null != fileWatcher) {
+			fileWatcher.close();
+			fileWatcher = null;
+		}
+		statistics.register(getName());
+
 		// Setting the file's name.
 		String filename = getInitParams().getProperty(CSV_PROPERTY_FILE, "").trim();
 		if ("".equals(filename)) {
@@ -233,10 +442,20 @@ public class CsvContentProvider extends AbstractContentProvider {
 				file = new File(fileUri.getPath());
 			}
 		}
+		fileSource = null != file ? CsvFileSource.create(file) : null;
+		fileContentUrls.clear();
+		recordOffsetIndexes.clear();
+
+		String sourceThreadsParamValue = getInitParams().getProperty(CSV_PROPERTY_SOURCETHREADS,
+				CSV_DEFAULT_SOURCETHREADS);
+		sourceThreads = Math.max(1, Integer.parseInt(StringUtils.isNotBlank(sourceThreadsParamValue)
+				? sourceThreadsParamValue.trim() : CSV_DEFAULT_SOURCETHREADS));
+		LOG.debug("Init param: source.threads = " + sourceThreads);
 
 		// Setting the content type
 		contentType = getInitParams().getProperty(CSV_PROPERTY_CONTENT_TYPE, CSV_DEFAULT_TYPE).trim();
 		LOG.debug("Init param: contentType = " + contentType);
+		contentUrlBuilder = new ContentUrlBuilder(CSV_CONTENT_URI_BASE, contentType);
 
 		// Setting the file's delimeter.
 		try {
@@ -266,10 +485,20 @@ public class CsvContentProvider extends AbstractContentProvider {
 			String digestAlgorithmParam = getInitParams().getProperty(CSV_PROPERTY_DIGESTALGORITHMFORCONTENTURLASHASHEDRECORD, CSV_DEFAULT_DIGESTALGORITHMFORCONTENTURLASHASHEDRECORD);
 			LOG.debug("Init param: contenUrlAsHashFromRecordDigestAlgorithm = " + digestAlgorithmParam);
 			try {
-				digestForContenUrlAsHashFromRecord = MessageDigest.getInstance(digestAlgorithmParam);
+				hasherForContenUrlAsHashFromRecord = RecordHasher.getInstance(digestAlgorithmParam);
 			} catch (NoSuchAlgorithmException e) {
 				throw new IllegalStateException("Digest algorithm for content url computation could not be instantiated", e);
 			}
+
+			String hashCharsetParam = getInitParams().getProperty(CSV_PROPERTY_CHARSETFORCONTENTURLASHASHEDRECORD,
+					CSV_DEFAULT_CHARSETFORCONTENTURLASHASHEDRECORD).trim();
+			LOG.debug("Init param: contenUrlAsHashFromRecordCharset = " + hashCharsetParam);
+			try {
+				charsetForContenUrlAsHashFromRecord = Charset.forName(hashCharsetParam);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalStateException("Charset for content url computation is not supported: "
+						+ hashCharsetParam, e);
+			}
 			idColumns = Collections.emptyList();
 		}
 		else {
@@ -393,8 +622,166 @@ public class CsvContentProvider extends AbstractContentProvider {
 						: CSV_DEFAULT_NAMECOLUMN);
 		LOG.debug("Init param: modificationDateColumn = " + modificationDateColumn);
 
+		// Setting the synchronization mode.
+		String syncModeParamValue = getInitParams().getProperty(CSV_PROPERTY_SYNCMODE, CSV_DEFAULT_SYNCMODE).trim();
+		streamingMode = CSV_SYNCMODE_STREAMING.equalsIgnoreCase(syncModeParamValue);
+		LOG.debug("Init param: sync.mode = " + syncModeParamValue);
+
+		String syncWindowParamValue = getInitParams().getProperty(CSV_PROPERTY_SYNCWINDOW, CSV_DEFAULT_SYNCWINDOW);
+		syncWindow = Integer.parseInt(StringUtils.isNotBlank(syncWindowParamValue) ? syncWindowParamValue.trim()
+				: CSV_DEFAULT_SYNCWINDOW);
+		if (1 > syncWindow) {
+			LOG.warn(String.format("'%s' is an illegal sync window. Default sync window (%s) will be used.",
+					syncWindowParamValue, CSV_DEFAULT_SYNCWINDOW));
+			syncWindow = Integer.parseInt(CSV_DEFAULT_SYNCWINDOW);
+		}
+		LOG.debug("Init param: sync.window = " + syncWindow);
+
+		syncPrefetch = Boolean.parseBoolean(getInitParams().getProperty(CSV_PROPERTY_SYNCPREFETCH,
+				CSV_DEFAULT_SYNCPREFETCH));
+		LOG.debug("Init param: sync.prefetch = " + syncPrefetch);
+
+		String syncThreadsParamValue = getInitParams().getProperty(CSV_PROPERTY_SYNCTHREADS, CSV_DEFAULT_SYNCTHREADS);
+		syncThreads = Math.max(1, Integer.parseInt(StringUtils.isNotBlank(syncThreadsParamValue)
+				? syncThreadsParamValue.trim() : CSV_DEFAULT_SYNCTHREADS));
+		LOG.debug("Init param: sync.threads = " + syncThreads);
+
+		String syncBatchSizeParamValue = getInitParams().getProperty(CSV_PROPERTY_SYNCBATCHSIZE,
+				CSV_DEFAULT_SYNCBATCHSIZE);
+		int syncBatchSize = Math.max(1, Integer.parseInt(StringUtils.isNotBlank(syncBatchSizeParamValue)
+				? syncBatchSizeParamValue.trim() : CSV_DEFAULT_SYNCBATCHSIZE));
+		LOG.debug("Init param: sync.batchSize = " + syncBatchSize);
+		String syncBatchIntervalParamValue = getInitParams().getProperty(CSV_PROPERTY_SYNCBATCHINTERVAL,
+				CSV_DEFAULT_SYNCBATCHINTERVAL);
+		long syncBatchInterval = Math.max(0L, Long.parseLong(StringUtils.isNotBlank(syncBatchIntervalParamValue)
+				? syncBatchIntervalParamValue.trim() : CSV_DEFAULT_SYNCBATCHINTERVAL));
+		LOG.debug("Init param: sync.batchInterval = " + syncBatchInterval);
+		repositoryBatch = new RepositoryBatch(new RepositoryBatch.Repository() {
+			@Override
+			public void add(Content content) throws IQserException {
+				long startTime = System.nanoTime();
+				try {
+					addContent(content);
+				} finally {
+					statistics.add(Phase.SUBMIT, System.nanoTime() - startTime, 1L, 0L);
+				}
+			}
+
+			@Override
+			public void update(Content content) throws IQserException {
+				long startTime = System.nanoTime();
+				try {
+					updateContent(content);
+				} finally {
+					statistics.add(Phase.SUBMIT, System.nanoTime() - startTime, 1L, 0L);
+				}
+			}
+
+			@Override
+			public void remove(String contentUrl) throws IQserException {
+				removeContent(contentUrl);
+			}
+		}, new RepositoryBatch.Listener() {
+			@Override
+			public void succeeded(RepositoryBatch.Operation operation, String contentUrl, Content content) {
+				statistics.increment(RepositoryBatch.Operation.ADD == operation ? Counter.ADDED
+						: RepositoryBatch.Operation.UPDATE == operation ? Counter.UPDATED : Counter.REMOVED);
+				if (RepositoryBatch.Operation.REMOVE == operation) {
+					if (null != fingerprintStore) {
+						fingerprintStore.remove(contentUrl);
+					}
+				} else {
+					RepositorySnapshot snapshot = getRepositorySnapshot();
+					if (null != snapshot) {
+						snapshot.put(content);
+					}
+					if (null != fingerprintStore) {
+						fingerprintStore.put(contentUrl, ContentFingerprint.of(content));
+					}
+				}
+			}
+
+			@Override
+			public void failed(RepositoryBatch.Operation operation, String contentUrl, IQserException e) {
+				statistics.increment(Counter.FAILED);
+				if (RepositoryBatch.Operation.REMOVE == operation) {
+					LOG.error(String.format("Unexpected error while trying to delete content: %s", contentUrl), e);
+				} else {
+					LOG.error(String.format("Unexpected error while trying to add or update content: %s", contentUrl),
+							e);
+				}
+			}
+		}, syncBatchSize, syncBatchInterval);
+
+		boolean syncFingerprints = Boolean.parseBoolean(getInitParams().getProperty(CSV_PROPERTY_SYNCFINGERPRINTS,
+				CSV_DEFAULT_SYNCFINGERPRINTS));
+		LOG.debug("Init param: sync.fingerprints = " + syncFingerprints);
+		fingerprintStore = null;
+		if (syncFingerprints && null != fileSource) {
+			// the fingerprints of all files of a directory are stored in the directory
+			fingerprintStore = new FingerprintStore(fileSource.isSingleFile() ? new File(file.getPath()
+					+ CSV_FINGERPRINT_STORE_SUFFIX) : new File(fileSource.getBaseDirectory(),
+					CSV_FINGERPRINT_STORE_SUFFIX));
+			fingerprintStore.load();
+		}
+
+		// Setting the append mode.
+		appendMode = Boolean.parseBoolean(getInitParams().getProperty(CSV_PROPERTY_APPENDMODE, CSV_DEFAULT_APPENDMODE));
+		if (appendMode && !RecordScanner.isSupported(charset, delimeter)) {
+			LOG.warn(String.format("Append mode is not supported for charset %s and delimeter '%s' and will be disabled.",
+					charset.name(), delimeter));
+			appendMode = false;
+		}
+		LOG.debug("Init param: append.mode = " + appendMode);
+		appendCheckpoints.clear();
+
+		// Setting the parallel parsing.
+		String parseThreadsParamValue = getInitParams().getProperty(CSV_PROPERTY_PARSETHREADS, CSV_DEFAULT_PARSETHREADS);
+		parseThreads = Math.max(1, Integer.parseInt(StringUtils.isNotBlank(parseThreadsParamValue)
+				? parseThreadsParamValue.trim() : CSV_DEFAULT_PARSETHREADS));
+		if (1 < parseThreads && !RecordScanner.isSupported(charset, delimeter)) {
+			LOG.warn(String.format("Parallel parsing is not supported for charset %s and delimeter '%s'. "
+					+ "The CSV file will be parsed sequentially.", charset.name(), delimeter));
+			parseThreads = 1;
+		}
+		LOG.debug("Init param: parse.threads = " + parseThreads);
+
+		String parseChunkSizeParamValue = getInitParams().getProperty(CSV_PROPERTY_PARSECHUNKSIZE,
+				CSV_DEFAULT_PARSECHUNKSIZE);
+		parseChunkSize = Math.max(1L, Long.parseLong(StringUtils.isNotBlank(parseChunkSizeParamValue)
+				? parseChunkSizeParamValue.trim() : CSV_DEFAULT_PARSECHUNKSIZE));
+		if (ParallelCsvParser.MAX_CHUNK_SIZE < parseChunkSize) {
+			LOG.warn(String.format("'%d' is a too large chunk size. The maximum chunk size (%d) will be used.",
+					parseChunkSize, ParallelCsvParser.MAX_CHUNK_SIZE));
+			parseChunkSize = ParallelCsvParser.MAX_CHUNK_SIZE;
+		}
+		LOG.debug("Init param: parse.chunkSize = " + parseChunkSize);
+
+		String parseReaderParamValue = getInitParams().getProperty(CSV_PROPERTY_PARSEREADER, CSV_DEFAULT_PARSEREADER);
+		try {
+			recordReaderType = CsvRecordReaderType.valueOf((StringUtils.isNotBlank(parseReaderParamValue)
+					? parseReaderParamValue : CSV_DEFAULT_PARSEREADER).trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			LOG.warn(String.format("'%s' is an unknown reader. Default reader (%s) will be used.",
+					parseReaderParamValue, CSV_DEFAULT_PARSEREADER));
+			recordReaderType = CsvRecordReaderType.valueOf(CSV_DEFAULT_PARSEREADER.toUpperCase());
+		}
+		LOG.debug("Init param: parse.reader = " + recordReaderType);
+
+		// Setting the storage of the content objects in memory.
+		String contentStorageParamValue = getInitParams().getProperty(CSV_PROPERTY_CONTENTSTORAGE,
+				CSV_DEFAULT_CONTENTSTORAGE).trim();
+		boolean packedContentStorage = "packed".equalsIgnoreCase(contentStorageParamValue);
+		if (!packedContentStorage && !CSV_DEFAULT_CONTENTSTORAGE.equalsIgnoreCase(contentStorageParamValue)) {
+			LOG.warn(String.format("'%s' is an unknown content storage. Default storage (%s) will be used.",
+					contentStorageParamValue, CSV_DEFAULT_CONTENTSTORAGE));
+		}
+		LOG.debug("Init param: content.storage = " + (packedContentStorage ? "packed" : CSV_DEFAULT_CONTENTSTORAGE));
+
 		modified = true;
-		contentMap = new HashMap<String, Content>();
+		contentMap = packedContentStorage ? new PackedContentMap() : new HashMap<String, Content>();
+		syncContentUrls = contentMap.keySet();
+		syncContentUrlsComplete = true;
 
 		String multiValueDelimitersParam = getInitParams().getProperty(CSV_PROPERTY_MULTIVALUEDELIMITERS);
 		LOG.debug("Init param: multiValueDelimiters = " + multiValueDelimitersParam);
@@ -417,24 +804,140 @@ public class CsvContentProvider extends AbstractContentProvider {
 				throw new IllegalArgumentException("Could not read multiValueDelimiters", e);
 			}
 		}
+		columnPlan = null;
+
+		// Setting the dictionaries of repeated column values.
+		String dictionarySizeParamValue = getInitParams().getProperty(CSV_PROPERTY_DICTIONARYSIZE,
+				CSV_DEFAULT_DICTIONARYSIZE);
+		dictionaryMaxSize = Math.max(0, Integer.parseInt(StringUtils.isNotBlank(dictionarySizeParamValue)
+				? dictionarySizeParamValue.trim() : CSV_DEFAULT_DICTIONARYSIZE));
+		valueDictionaries.clear();
+		LOG.debug("Init param: dictionary.maxSize = " + dictionaryMaxSize);
+
+		// Setting the Bloom filter of the housekeeping in streaming mode.
+		String falsePositivesParamValue = getInitParams().getProperty(CSV_PROPERTY_HOUSEKEEPINGFALSEPOSITIVES,
+				CSV_DEFAULT_HOUSEKEEPINGFALSEPOSITIVES);
+		housekeepingFalsePositiveProbability = Double.parseDouble(StringUtils.isNotBlank(falsePositivesParamValue)
+				? falsePositivesParamValue.trim() : CSV_DEFAULT_HOUSEKEEPINGFALSEPOSITIVES);
+		if (0.0 >= housekeepingFalsePositiveProbability || 1.0 <= housekeepingFalsePositiveProbability) {
+			LOG.warn(String.format("'%s' is not a probability. Default probability (%s) will be used.",
+					falsePositivesParamValue, CSV_DEFAULT_HOUSEKEEPINGFALSEPOSITIVES));
+			housekeepingFalsePositiveProbability = Double.parseDouble(CSV_DEFAULT_HOUSEKEEPINGFALSEPOSITIVES);
+		}
+		LOG.debug("Init param: housekeeping.falsePositiveProbability = " + housekeepingFalsePositiveProbability);
+		contentUrlFilters.clear();
+		streamingContentUrls.clear();
+
+		// Setting the persistent record index.
+		recordIndex = Boolean.parseBoolean(getInitParams().getProperty(CSV_PROPERTY_RECORDINDEX,
+				CSV_DEFAULT_RECORDINDEX));
+		if (recordIndex && !RecordScanner.isSupported(charset, delimeter)) {
+			LOG.warn(String.format("The record index is not supported for charset %s and delimeter '%s'.",
+					charset.name(), delimeter));
+			recordIndex = false;
+		}
+		LOG.debug("Init param: record.index = " + recordIndex);
+
+		// Setting the block-level change detection.
+		syncBlocks = Boolean.parseBoolean(getInitParams().getProperty(CSV_PROPERTY_SYNCBLOCKS, CSV_DEFAULT_SYNCBLOCKS));
+		if (syncBlocks && !RecordScanner.isSupported(charset, delimeter)) {
+			LOG.warn(String.format("Block checksums are not supported for charset %s and delimeter '%s'.",
+					charset.name(), delimeter));
+			syncBlocks = false;
+		}
+		LOG.debug("Init param: sync.blockChecksums = " + syncBlocks);
+		String syncBlockSizeParamValue = getInitParams().getProperty(CSV_PROPERTY_SYNCBLOCKSIZE,
+				CSV_DEFAULT_SYNCBLOCKSIZE);
+		syncBlockSize = Math.max(256, Integer.parseInt(StringUtils.isNotBlank(syncBlockSizeParamValue)
+				? syncBlockSizeParamValue.trim() : CSV_DEFAULT_SYNCBLOCKSIZE));
+		LOG.debug("Init param: sync.blockSize = " + syncBlockSize);
+		blockChecksums.clear();
+
+		// Setting the write-behind of updates.
+		String updateDelayParamValue = getInitParams().getProperty(CSV_PROPERTY_UPDATEDELAY, CSV_DEFAULT_UPDATEDELAY);
+		long updateDelay = Math.max(0L, Long.parseLong(StringUtils.isNotBlank(updateDelayParamValue)
+				? updateDelayParamValue.trim() : CSV_DEFAULT_UPDATEDELAY));
+		LOG.debug("Init param: update.delay = " + updateDelay);
+		// the writer thread holds the synchronization lock, since it changes the CSV files and the content map
+		UpdateQueue previousUpdateQueue = updateQueue;
+		updateQueue = new UpdateQueue("CsvUpdateWriter-" + getName(), updateDelay, synchronizationLock,
+				new UpdateQueue.UpdateWriter() {
+					@Override
+					public void write(Collection<Content> contents) {
+						updateCsv(contents);
+					}
+				});
+		// the previous queue is closed after it has been replaced, so that concurrent updates are not rejected
+		if (null != previousUpdateQueue) {
+			previousUpdateQueue.close();
+		}
+
+		// Setting the watcher of the CSV files.
+		boolean watch = Boolean.parseBoolean(getInitParams().getProperty(CSV_PROPERTY_WATCH, CSV_DEFAULT_WATCH));
+		LOG.debug("Init param: watch.enabled = " + watch);
+		String watchQuietPeriodParamValue = getInitParams().getProperty(CSV_PROPERTY_WATCHQUIETPERIOD,
+				CSV_DEFAULT_WATCHQUIETPERIOD);
+		long watchQuietPeriod = Math.max(0L, Long.parseLong(StringUtils.isNotBlank(watchQuietPeriodParamValue)
+				? watchQuietPeriodParamValue.trim() : CSV_DEFAULT_WATCHQUIETPERIOD));
+		LOG.debug("Init param: watch.quietPeriod = " + watchQuietPeriod);
+		if (watch && null != fileSource) {
+			try {
+				fileWatcher = new FileWatcher("CsvFileWatcher-" + getName(), fileSource, watchQuietPeriod,
+						new FileWatcher.ChangeListener() {
+							@Override
+							public void changed(List<File> files) {
+								synchronizeChangedFiles(files);
+							}
+						});
+				fileWatcher.start();
+			} catch (IOException e) {
+				LOG.error("Cannot watch CSV files: " + fileSource.getLocation(), e);
+			}
+		}
+	}
+
+	/*
+	 * Called by the file watcher, when CSV files have been changed, or with an empty list if all files may have been
+	 * changed. Only the changed files are read again, unless the provider is in streaming mode.
+	 */
+	private void synchronizeChangedFiles(List<File> files) {
+		synchronized (synchronizationLock) {
+			LOG.info("Synchronizing changed CSV files: " + (files.isEmpty() ? fileSource.getLocation() : files));
+
+			// a file may have been changed within the resolution of its modification timestamp since the last read
+			List<File> changedFiles = files.isEmpty() ? listFiles() : files;
+			if (null != changedFiles) {
+				for (File changedFile : changedFiles) {
+					MODIFICATION_TIMESTAMP_CACHE.remove(getModificationTimestampKey(changedFile));
+				}
+			}
+			if (!streamingMode) {
+				getContentUrls();
+			}
+			doSynchronization();
+		}
 	}
 
-	private long getCachedFileModificationTimestamp() {
-		Long cachedTimestamp = MODIFICATION_TIMESTAMP_CACHE.get(getName());
+	private long getCachedFileModificationTimestamp(File sourceFile) {
+		Long cachedTimestamp = MODIFICATION_TIMESTAMP_CACHE.get(getModificationTimestampKey(sourceFile));
 		if (null != cachedTimestamp) {
 			return cachedTimestamp.longValue();
 		}
 		return 0L;
 	}
 
-	private void setCachedFileModificationTimestamp(long timestamp) {
+	private void setCachedFileModificationTimestamp(File sourceFile, long timestamp) {
 		if (timestamp >= 0) {
-			MODIFICATION_TIMESTAMP_CACHE.put(getName(), timestamp);
+			MODIFICATION_TIMESTAMP_CACHE.put(getModificationTimestampKey(sourceFile), timestamp);
 		} else {
-			MODIFICATION_TIMESTAMP_CACHE.put(getName(), 0L);
+			MODIFICATION_TIMESTAMP_CACHE.put(getModificationTimestampKey(sourceFile), 0L);
 		}
 	}
 
+	private String getModificationTimestampKey(File sourceFile) {
+		return getName() + '|' + sourceFile.getPath();
+	}
+
 	/**
 	 * Optional method if any additional process is required to stop the provider
 	 * 
@@ -442,7 +945,15 @@ public class CsvContentProvider extends AbstractContentProvider {
 	 */
 	@Override
 	public void destroy() {
-		// Nothing to be done
+		statistics.unregister();
+		if (null != fileWatcher) {
+			fileWatcher.close();
+			fileWatcher = null;
+		}
+		if (null != updateQueue) {
+			updateQueue.close();
+			updateQueue = null;
+		}
 	}
 
 	/**
@@ -452,34 +963,259 @@ public class CsvContentProvider extends AbstractContentProvider {
 	 */
 	@Override
 	public void doSynchronization() {
-		LOG.info(String.format("Invoking %s#doSynchronization() ...", this.getClass().getSimpleName()));
+		synchronized (synchronizationLock) {
+			LOG.info(String.format("Invoking %s#doSynchronization() ...", this.getClass().getSimpleName()));
 
-		if (0 == contentMap.size()) {
-			getContentUrls();
-		}
+			// queued updates are written first, so that the synchronization reads the updated records
+			flushUpdates();
+
+			if (streamingMode) {
+				doStreamingSynchronization();
+				return;
+			}
+
+			if (0 == contentMap.size()) {
+				getContentUrls();
+			}
 
-		if (modified) {
-			for (String contentUrl : contentMap.keySet()) {
-				Content content = createContent(contentUrl);
+			if (modified) {
+				boolean completed = false;
+				SynchronizationPipeline pipeline = startSynchronizationPipeline();
 				try {
-					if (isExistingContent(contentUrl)) {
-						if (isModifiedContent(content)) {
-							LOG.info(String.format("Invoking %s#updateContent() for ContentURL: %s ...", this
-									.getClass().getSimpleName(), contentUrl));
-							updateContent(content);
+					for (String contentUrl : syncContentUrls) {
+						Content content = createContent(contentUrl);
+						if (null != pipeline) {
+							pipeline.put(content);
 						} else {
-							LOG.info(String.format("Skipping unmodified content: %s", contentUrl));
+							synchronizeContent(content);
+						}
+					}
+					if (null != pipeline) {
+						pipeline.finish();
+					}
+					completed = syncContentUrlsComplete;
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					LOG.error("Interrupted while synchronizing content objects.", e);
+				} finally {
+					if (null != pipeline) {
+						pipeline.abort();
+					}
+					endSynchronization(completed);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Starts the threads that submit the content objects to the repository, or returns null if the content objects are
+	 * submitted by the calling thread.
+	 */
+	private SynchronizationPipeline startSynchronizationPipeline() {
+		if (1 >= syncThreads) {
+			return null;
+		}
+		return new SynchronizationPipeline("CsvSynchronizer-" + getName(), syncThreads, syncWindow,
+				new SynchronizationPipeline.ContentSubmitter() {
+					@Override
+					public void submit(Content content) {
+						synchronizeContent(content);
+					}
+				});
+	}
+
+	/*
+	 * Reads the CSV file record by record and adds or updates the content objects in windows of at most syncWindow
+	 * objects. The content map is not used, so the memory consumption does not depend on the size of the file.
+	 */
+	private void doStreamingSynchronization() {
+		List<File> files = listFiles();
+		if (null == files) {
+			return;
+		}
+
+		List<File> modifiedFiles = new ArrayList<File>();
+		for (File sourceFile : files) {
+			if (!isReadableFile(sourceFile)) {
+				LOG.error("Cannot read CSV file: " + sourceFile);
+				continue;
+			}
+			long lastModified = sourceFile.lastModified();
+			if (!modified && getCachedFileModificationTimestamp(sourceFile) >= lastModified) {
+				LOG.info("Skipping synchronization of unmodified CSV file: " + sourceFile.getPath());
+				continue;
+			}
+			setCachedFileModificationTimestamp(sourceFile, lastModified);
+			modifiedFiles.add(sourceFile);
+		}
+		if (modifiedFiles.isEmpty()) {
+			return;
+		}
+
+		final List<Content> window = new ArrayList<Content>(syncWindow);
+		final SynchronizationPipeline pipeline = startSynchronizationPipeline();
+		boolean completed = false;
+		try {
+			Map<File, AppendCheckpoint> checkpoints = getValidAppendCheckpoints(modifiedFiles);
+			final Map<File, FileContentUrlFilter> parsedContentUrlFilters = newContentUrlFilters(modifiedFiles,
+					checkpoints);
+			boolean parsed = parseFiles(modifiedFiles, checkpoints, appendMode, new ContentVisitor() {
+				@Override
+				public boolean visit(File sourceFile, Content content) {
+					FileContentUrlFilter contentUrlFilter = parsedContentUrlFilters.get(sourceFile);
+					if (null != contentUrlFilter) {
+						contentUrlFilter.filter.add(content.getContentUrl());
+					}
+					if (null != pipeline) {
+						try {
+							pipeline.put(content);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							LOG.error("Interrupted while synchronizing content objects.", e);
+							return false;
 						}
 					} else {
-						LOG.info(String.format("Invoking %s#addContent() for ContentURL: %s ...", this.getClass()
-								.getSimpleName(), contentUrl));
-						addContent(content);
+						window.add(content);
+						if (window.size() >= syncWindow) {
+							synchronizeContents(window);
+							window.clear();
+						}
 					}
-				} catch (IQserException e) {
-					LOG.error(String.format("Unexpected error while trying to add or update content: %s", contentUrl),
-							e);
+					return true;
+				}
+			});
+			if (null != pipeline) {
+				pipeline.finish();
+				parsed &= !Thread.currentThread().isInterrupted();
+			}
+			synchronizeContents(window);
+			window.clear();
+			logValueDictionaries();
+			if (parsed) {
+				contentUrlFilters.putAll(parsedContentUrlFilters);
+			}
+
+			modified = !parsed;
+			// only a pass over all records may drop the fingerprints of records that have not been seen
+			completed = parsed && checkpoints.isEmpty() && modifiedFiles.size() == files.size();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while synchronizing content objects.", e);
+		} finally {
+			if (null != pipeline) {
+				pipeline.abort();
+			}
+			endSynchronization(completed);
+		}
+	}
+
+	/*
+	 * Writes the pending repository operations, releases the repository snapshot and persists the fingerprints of the
+	 * synchronized records.
+	 */
+	private void endSynchronization(boolean completed) {
+		repositoryBatch.flush();
+		statistics.endRun(Phase.COMPARE);
+		statistics.endRun(Phase.SUBMIT);
+		synchronized (repositorySnapshotLock) {
+			repositorySnapshot = null;
+			repositorySnapshotLoaded = false;
+		}
+		if (null != fingerprintStore) {
+			fingerprintStore.endPass(completed);
+		}
+	}
+
+	/*
+	 * Returns the repository snapshot of the current synchronization, which is loaded on first use. Thus a
+	 * synchronization that skips all records due to unchanged fingerprints does not read the repository at all.
+	 */
+	private RepositorySnapshot getRepositorySnapshot() {
+		synchronized (repositorySnapshotLock) {
+			if (!repositorySnapshotLoaded) {
+				repositorySnapshot = loadRepositorySnapshot();
+				repositorySnapshotLoaded = true;
+			}
+			return repositorySnapshot;
+		}
+	}
+
+	/*
+	 * Loads the fingerprints of all existing content objects with a single repository call. Returns null, if
+	 * prefetching is disabled or failed, in which case the repository is queried for every record.
+	 */
+	private RepositorySnapshot loadRepositorySnapshot() {
+		if (!syncPrefetch) {
+			return null;
+		}
+		try {
+			RepositorySnapshot snapshot = new RepositorySnapshot(getExistingContents());
+			LOG.info(String.format("Prefetched %d existing content objects.", snapshot.size()));
+			return snapshot;
+		} catch (IQserException e) {
+			LOG.warn("Could not prefetch existing content objects. The repository will be queried for every record.",
+					e);
+			return null;
+		}
+	}
+
+	private void synchronizeContents(Collection<Content> contents) {
+		for (Content content : contents) {
+			synchronizeContent(content);
+		}
+	}
+
+	/*
+	 * Adds the content object to the repository or updates the existing one, if it has been modified.
+	 */
+	private void synchronizeContent(Content content) {
+		String contentUrl = content.getContentUrl();
+		long startTime = System.nanoTime();
+
+		long fingerprint = 0L;
+		if (null != fingerprintStore) {
+			fingerprint = ContentFingerprint.of(content);
+			if (fingerprintStore.isUnchanged(contentUrl, fingerprint)) {
+				if (LOG.isDebugEnabled()) {
+					LOG.debug(String.format("Skipping content with unchanged fingerprint: %s", contentUrl));
+				}
+				statistics.add(Phase.COMPARE, System.nanoTime() - startTime, 1L, 0L);
+				statistics.increment(Counter.SKIPPED);
+				return;
+			}
+		}
+
+		RepositorySnapshot snapshot = getRepositorySnapshot();
+		try {
+			boolean existing = null != snapshot ? snapshot.contains(contentUrl) : isExistingContent(contentUrl);
+			boolean modifiedContent = existing
+					&& (null != snapshot ? snapshot.isModified(content, 0 <= modificationDateColumn)
+							: isModifiedContent(content));
+			statistics.add(Phase.COMPARE, System.nanoTime() - startTime, 1L, 0L);
+			if (existing) {
+				if (modifiedContent) {
+					LOG.info(String.format("Invoking %s#updateContent() for ContentURL: %s ...", this.getClass()
+							.getSimpleName(), contentUrl));
+					// the snapshot and the fingerprint are updated once the batch has been written
+					repositoryBatch.update(content);
+					return;
 				}
+				LOG.info(String.format("Skipping unmodified content: %s", contentUrl));
+				statistics.increment(Counter.SKIPPED);
+			} else {
+				LOG.info(String.format("Invoking %s#addContent() for ContentURL: %s ...", this.getClass()
+						.getSimpleName(), contentUrl));
+				repositoryBatch.add(content);
+				return;
+			}
+			if (null != snapshot) {
+				snapshot.put(content);
 			}
+			if (null != fingerprintStore) {
+				fingerprintStore.put(contentUrl, fingerprint);
+			}
+		} catch (IQserException e) {
+			LOG.error(String.format("Unexpected error while trying to add or update content: %s", contentUrl), e);
 		}
 	}
 
@@ -563,27 +1299,20 @@ public class CsvContentProvider extends AbstractContentProvider {
 			if (other.getAttributes() != null && content.getAttributes() == null) {
 				return false;
 			}
+			if (other.getAttributes() == null) {
+				return true;
+			}
 			if (other.getAttributes().size() != content.getAttributes().size()) {
 				return false;
 			}
 
+			// the attributes are usually in the same order, then they are compared pairwise
 			Iterator<Attribute> iteratorContent = content.getAttributes().iterator();
+			Iterator<Attribute> iteratorOther = other.getAttributes().iterator();
 			while (iteratorContent.hasNext()) {
 				Attribute attr = iteratorContent.next();
-
-				boolean hasFound = false;
-
-				Iterator<Attribute> iteratorContentB = other.getAttributes().iterator();
-				while (iteratorContentB.hasNext()) {
-					Attribute attrB = iteratorContentB.next();
-					if (attr.equals(attrB)) {
-						hasFound = true;
-						break;
-					}
-				}
-
-				if (!hasFound) {
-					return false;
+				if (!attr.equals(iteratorOther.next())) {
+					return containsEqualAttributes(other.getAttributes(), attr, iteratorContent);
 				}
 			}
 
@@ -591,6 +1320,40 @@ public class CsvContentProvider extends AbstractContentProvider {
 		}
 	}
 
+	/*
+	 * Checks if each of the given attribute and the remaining attributes of the iterator has an equal attribute in the
+	 * other attributes. The other attributes are indexed by their names, since equal attributes have equal names, so
+	 * that each attribute is only compared with the other attributes of the same name.
+	 */
+	private static boolean containsEqualAttributes(Collection<Attribute> otherAttributes, Attribute attribute,
+			Iterator<Attribute> attributes) {
+		Map<String, List<Attribute>> attributesByName = new HashMap<String, List<Attribute>>(
+				otherAttributes.size() * 4 / 3 + 1);
+		for (Attribute otherAttribute : otherAttributes) {
+			List<Attribute> namedAttributes = attributesByName.get(otherAttribute.getName());
+			if (null == namedAttributes) {
+				namedAttributes = new ArrayList<Attribute>(1);
+				attributesByName.put(otherAttribute.getName(), namedAttributes);
+			}
+			namedAttributes.add(otherAttribute);
+		}
+
+		if (!containsEqualAttribute(attributesByName, attribute)) {
+			return false;
+		}
+		while (attributes.hasNext()) {
+			if (!containsEqualAttribute(attributesByName, attributes.next())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean containsEqualAttribute(Map<String, List<Attribute>> attributesByName, Attribute attribute) {
+		List<Attribute> namedAttributes = attributesByName.get(attribute.getName());
+		return null != namedAttributes && namedAttributes.contains(attribute);
+	}
+
 	/**
 	 * Required method to remove content objects from the repository
 	 * 
@@ -598,22 +1361,44 @@ public class CsvContentProvider extends AbstractContentProvider {
 	 */
 	@Override
 	public void doHousekeeping() {
-		LOG.info(String.format("Invoking %s#doHousekeeping() ...", this.getClass().getSimpleName()));
+		synchronized (synchronizationLock) {
+			LOG.info(String.format("Invoking %s#doHousekeeping() ...", this.getClass().getSimpleName()));
 
-		Collection<? extends String> contentUrls = getContentUrls();
-		try {
-			for (String existingContentUrl : getExistingContentUrls()) {
-				if (!contentUrls.contains(existingContentUrl)) {
-					try {
-						removeContent(existingContentUrl);
-					} catch (IQserException e) {
-						LOG.error(String.format("Unexpected error while trying to delete content: %s",
-								existingContentUrl), e);
+			long startTime = System.nanoTime();
+			int existingContentCount = 0;
+			try {
+				// in streaming mode the ContentUrls of the records are only kept in Bloom filters, whose negatives are
+				// certain, so that the existing content objects can be checked without holding all ContentUrls
+				Collection<? extends String> contentUrls = null;
+				List<ContentUrlFilter> filters = null;
+				if (streamingMode) {
+					filters = getContentUrlFilters();
+					if (null == filters) {
+						LOG.warn("Skipping housekeeping, since the CSV files could not be read completely.");
+						return;
+					}
+				} else {
+					contentUrls = getContentUrls();
+				}
+
+				// the content objects of removed records are removed in batches while the existing ones are checked
+				for (Content existingContent : getExistingContents()) {
+					existingContentCount++;
+					String existingContentUrl = existingContent.getContentUrl();
+					if (null != filters ? !mightContain(filters, existingContentUrl) : !contentUrls
+							.contains(existingContentUrl)) {
+						repositoryBatch.remove(existingContentUrl);
 					}
 				}
+				repositoryBatch.flush();
+			} catch (IQserException e) {
+				LOG.error("Unexpected error while trying to get existing content URLs.", e);
+			} finally {
+				if (null != fingerprintStore) {
+					fingerprintStore.flush();
+				}
+				statistics.run(Phase.HOUSEKEEPING, System.nanoTime() - startTime, existingContentCount, 0L);
 			}
-		} catch (IQserException e) {
-			LOG.error("Unexpected error while trying to get existing content URLs.", e);
 		}
 	}
 
@@ -626,6 +1411,18 @@ public class CsvContentProvider extends AbstractContentProvider {
 	public Content createContent(String contentUrl) {
 		LOG.info(String.format("Invoking %s#createContent(%s) ...", this.getClass().getSimpleName(), contentUrl));
 
+		// a single record is read from the file, if the record offset index is available
+		if (recordIndex && (streamingMode || 0 == contentMap.size())) {
+			Object[] indexedContent = readIndexedContent(contentUrl);
+			if (null != indexedContent) {
+				return (Content) indexedContent[0];
+			}
+		}
+
+		if (streamingMode) {
+			return findContent(contentUrl);
+		}
+
 		if (0 == contentMap.size()) {
 			getContentUrls();
 		}
@@ -659,64 +1456,750 @@ public class CsvContentProvider extends AbstractContentProvider {
 	/**
 	 * This method is used to retrieve identifiers for objects in the csv-file. As it parses the CSV-file which is
 	 * defined in an init-param of this plugin to read the contentUrls, the content objects will also be created
-	 * "on the fly" and stored in memory. The file will only be parsed if its modification timestamp has changed.
+	 * "on the fly" and stored in memory. A file will only be parsed if its modification timestamp has changed. If
+	 * the init-param denotes a directory or a glob pattern, the ContentUrls of all matching files are returned.
 	 * 
 	 * @see com.iqser.core.plugin.AbstractContentProvider#getContentUrls()
 	 */
 	public Collection<String> getContentUrls() {
-		LOG.info(String.format("Invoking %s#getContentUrls() ...", this.getClass().getSimpleName()));
+		synchronized (synchronizationLock) {
+			LOG.info(String.format("Invoking %s#getContentUrls() ...", this.getClass().getSimpleName()));
 
-		if (null != file && file.exists() && file.isFile() && file.canRead()) {
-			LOG.info("Reading CSV file: " + file.toURI().toString());
+			List<File> files = listFiles();
+			if (null == files) {
+				return contentMap.keySet();
+			}
 
-			if (contentMap.isEmpty() || getCachedFileModificationTimestamp() < file.lastModified()) {
-				setCachedFileModificationTimestamp(file.lastModified());
-				modified = true;
-				contentMap.clear();
+			if (streamingMode) {
+				return readContentUrls(files);
+			}
 
-				CsvReader csvReader = null;
-				try {
-					csvReader = new CsvReader(new FileInputStream(file), delimeter, charset);
-				} catch (FileNotFoundException e) {
-					LOG.error("Could not read file: " + file.getPath(), e);
-					return contentMap.keySet();
+			if (contentMap.isEmpty()) {
+				fileContentUrls.clear();
+				blockChecksums.clear();
+			}
+
+			// the content objects of removed files are dropped
+			boolean removedFiles = false;
+			for (Iterator<Entry<File, Set<String>>> entries = fileContentUrls.entrySet().iterator(); entries
+					.hasNext();) {
+				Entry<File, Set<String>> entry = entries.next();
+				if (!files.contains(entry.getKey())) {
+					LOG.info("CSV file has been removed: " + entry.getKey().getPath());
+					contentMap.keySet().removeAll(entry.getValue());
+					appendCheckpoints.remove(entry.getKey());
+					blockChecksums.remove(entry.getKey());
+					entries.remove();
+					removedFiles = true;
 				}
+			}
 
-				try {
-					csvReader.readHeaders();
-					List<Column> columns = getColumns(csvReader);
+			List<File> modifiedFiles = new ArrayList<File>();
+			for (File sourceFile : files) {
+				if (!isReadableFile(sourceFile)) {
+					LOG.error("Cannot read CSV file: " + sourceFile);
+				} else if (!fileContentUrls.containsKey(sourceFile)
+						|| getCachedFileModificationTimestamp(sourceFile) < sourceFile.lastModified()) {
+					LOG.info("Reading CSV file: " + sourceFile.toURI().toString());
+					setCachedFileModificationTimestamp(sourceFile, sourceFile.lastModified());
+					modifiedFiles.add(sourceFile);
+				}
+			}
+
+			if (!modifiedFiles.isEmpty()) {
+				modified = true;
+
+				// in append mode only the appended records are read and synchronized
+				Map<File, AppendCheckpoint> checkpoints = getValidAppendCheckpoints(modifiedFiles);
+
+				// otherwise only the changed blocks are read and synchronized, if the block checksums are known
+				final Set<String> parsedContentUrls = new LinkedHashSet<String>();
+				for (Iterator<File> modifiedFileIterator = modifiedFiles.iterator(); modifiedFileIterator.hasNext();) {
+					File sourceFile = modifiedFileIterator.next();
+					if (!checkpoints.containsKey(sourceFile) && fileContentUrls.containsKey(sourceFile)
+							&& parseChangedBlocks(sourceFile, parsedContentUrls)) {
+						modifiedFileIterator.remove();
+					}
+				}
+
+				boolean complete = checkpoints.isEmpty() && modifiedFiles.size() == files.size();
+				if (complete) {
+					contentMap.clear();
+				}
+				for (File sourceFile : modifiedFiles) {
+					Set<String> contentUrls = fileContentUrls.get(sourceFile);
+					if (null == contentUrls) {
+						fileContentUrls.put(sourceFile, new HashSet<String>());
+					} else if (!checkpoints.containsKey(sourceFile)) {
+						contentMap.keySet().removeAll(contentUrls);
+						contentUrls.clear();
+					}
+				}
+
+				parseFiles(modifiedFiles, checkpoints, appendMode, new ContentVisitor() {
+					@Override
+					public boolean visit(File sourceFile, Content content) {
+						contentMap.put(content.getContentUrl(), content);
+						fileContentUrls.get(sourceFile).add(content.getContentUrl());
+						parsedContentUrls.add(content.getContentUrl());
+						return true;
+					}
+				});
+				logValueDictionaries();
+
+				syncContentUrls = parsedContentUrls;
+				syncContentUrlsComplete = complete;
+			} else if (removedFiles) {
+				modified = true;
+				syncContentUrls = Collections.emptySet();
+				syncContentUrlsComplete = false;
+			} else {
+				modified = false;
+			}
+
+			return contentMap.keySet();
+		}
+	}
+
+	/*
+	 * Lists the CSV files, or returns null if they could not be listed.
+	 */
+	private List<File> listFiles() {
+		if (null == fileSource) {
+			LOG.error("Cannot read CSV file: " + file);
+			return null;
+		}
+		try {
+			return fileSource.listFiles();
+		} catch (IOException e) {
+			LOG.error("Cannot list CSV files: " + file, e);
+			return null;
+		}
+	}
+
+	/*
+	 * Returns the readable files of the given files.
+	 */
+	private List<File> getReadableFiles(List<File> files) {
+		List<File> readableFiles = new ArrayList<File>();
+		for (File sourceFile : files) {
+			if (isReadableFile(sourceFile)) {
+				readableFiles.add(sourceFile);
+			} else {
+				LOG.error("Cannot read CSV file: " + sourceFile);
+			}
+		}
+		return readableFiles;
+	}
+
+	private static boolean isReadableFile(File sourceFile) {
+		return null != sourceFile && sourceFile.exists() && sourceFile.isFile() && sourceFile.canRead();
+	}
+
+	/*
+	 * Returns the ContentUrls of all records without keeping the content objects. Only the files that have been
+	 * changed since their ContentUrls have been read are parsed again.
+	 */
+	private Set<String> readContentUrls(List<File> files) {
+		List<File> readableFiles = getReadableFiles(files);
+		streamingContentUrls.keySet().retainAll(readableFiles);
+
+		List<File> changedFiles = new ArrayList<File>();
+		for (File sourceFile : readableFiles) {
+			FileContentUrls fileContentUrls = streamingContentUrls.get(sourceFile);
+			if (null == fileContentUrls || !fileContentUrls.isCurrent(sourceFile)) {
+				changedFiles.add(sourceFile);
+			}
+		}
+		if (!changedFiles.isEmpty()) {
+			parseContentUrls(changedFiles, null);
+		}
+
+		Set<String> contentUrls = new HashSet<String>();
+		for (File sourceFile : readableFiles) {
+			FileContentUrls fileContentUrls = streamingContentUrls.get(sourceFile);
+			if (null != fileContentUrls) {
+				contentUrls.addAll(fileContentUrls.contentUrls);
+			}
+		}
+		return contentUrls;
+	}
+
+	/*
+	 * Parses the given files completely and keeps their ContentUrls, if all files could be read. Returns the content
+	 * object and the file of the first record with the given ContentUrl, or null if there is no such record.
+	 */
+	private Object[] parseContentUrls(List<File> files, final String contentUrl) {
+		final Map<File, FileContentUrls> parsedContentUrls = new HashMap<File, FileContentUrls>();
+		for (File sourceFile : files) {
+			parsedContentUrls.put(sourceFile, new FileContentUrls(sourceFile));
+		}
+
+		final Object[] foundRecord = new Object[2];
+		boolean parsed = parseFiles(files, Collections.<File, AppendCheckpoint> emptyMap(), false,
+				new ContentVisitor() {
+					@Override
+					public boolean visit(File sourceFile, Content content) {
+						parsedContentUrls.get(sourceFile).contentUrls.add(content.getContentUrl());
+						if (null == foundRecord[0] && content.getContentUrl().equals(contentUrl)) {
+							foundRecord[0] = content;
+							foundRecord[1] = sourceFile;
+						}
+						return true;
+					}
+				});
+		if (parsed) {
+			streamingContentUrls.putAll(parsedContentUrls);
+		}
+		return null != foundRecord[0] ? foundRecord : null;
+	}
+
+	/*
+	 * Returns the Bloom filters of the ContentUrls of all CSV files, or null if a file could not be read completely.
+	 * The filters that have been built while parsing the files are reused, only the files that have been changed
+	 * since are parsed again without keeping the content objects.
+	 */
+	private List<ContentUrlFilter> getContentUrlFilters() {
+		List<File> files = listFiles();
+		if (null == files) {
+			return null;
+		}
+		contentUrlFilters.keySet().retainAll(files);
+
+		List<File> changedFiles = new ArrayList<File>();
+		for (File sourceFile : files) {
+			if (!isReadableFile(sourceFile)) {
+				LOG.error("Cannot read CSV file: " + sourceFile);
+				return null;
+			}
+			FileContentUrlFilter contentUrlFilter = contentUrlFilters.get(sourceFile);
+			if (null == contentUrlFilter || !contentUrlFilter.isCurrent(sourceFile)) {
+				changedFiles.add(sourceFile);
+			}
+		}
+
+		if (!changedFiles.isEmpty()) {
+			final Map<File, FileContentUrlFilter> parsedContentUrlFilters = newContentUrlFilters(changedFiles,
+					Collections.<File, AppendCheckpoint> emptyMap());
+			boolean parsed = parseFiles(changedFiles, Collections.<File, AppendCheckpoint> emptyMap(), false,
+					new ContentVisitor() {
+						@Override
+						public boolean visit(File sourceFile, Content content) {
+							parsedContentUrlFilters.get(sourceFile).filter.add(content.getContentUrl());
+							return true;
+						}
+					});
+			if (!parsed) {
+				return null;
+			}
+			contentUrlFilters.putAll(parsedContentUrlFilters);
+		}
+
+		List<ContentUrlFilter> filters = new ArrayList<ContentUrlFilter>(files.size());
+		for (File sourceFile : files) {
+			ContentUrlFilter filter = contentUrlFilters.get(sourceFile).filter;
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(String.format("Bloom filter of %d ContentUrls with %d bytes: %s", filter.size(),
+						filter.getByteCount(), sourceFile.getPath()));
+			}
+			filters.add(filter);
+		}
+		return filters;
+	}
+
+	/*
+	 * Creates the Bloom filters of the ContentUrls of the given files, which are filled while the files are parsed. The
+	 * filter of a file that is read from its append checkpoint is extended, if it is known. Otherwise the file gets no
+	 * filter, since its parse does not see all records. A new filter is sized for twice the number of ContentUrls of
+	 * the last filter of the file, or estimated from its length, and gets a new seed every time, so that a removed
+	 * record that is a false positive is removed after the next parse of the file.
+	 */
+	private Map<File, FileContentUrlFilter> newContentUrlFilters(List<File> files,
+			Map<File, AppendCheckpoint> checkpoints) {
+		Map<File, FileContentUrlFilter> newContentUrlFilters = new HashMap<File, FileContentUrlFilter>();
+		for (File sourceFile : files) {
+			FileContentUrlFilter previousFilter = contentUrlFilters.remove(sourceFile);
+			ContentUrlFilter filter;
+			if (checkpoints.containsKey(sourceFile)) {
+				if (null == previousFilter) {
+					continue;
+				}
+				filter = previousFilter.filter;
+			} else {
+				long expectedSize = null != previousFilter ? 2L * previousFilter.filter.size() : sourceFile.length()
+						/ ESTIMATED_RECORD_LENGTH;
+				filter = new ContentUrlFilter((int) Math.min(Integer.MAX_VALUE, Math.max(1024L, expectedSize)),
+						housekeepingFalsePositiveProbability, System.nanoTime());
+			}
+			newContentUrlFilters.put(sourceFile, new FileContentUrlFilter(sourceFile, filter));
+		}
+		return newContentUrlFilters;
+	}
+
+	private static boolean mightContain(List<ContentUrlFilter> filters, String contentUrl) {
+		for (ContentUrlFilter filter : filters) {
+			if (filter.mightContain(contentUrl)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Finds the record with the given ContentUrl in the CSV files. A file whose ContentUrls are known and unchanged is
+	 * only parsed if it contains the record, and then only up to the record. A changed file is parsed completely, so
+	 * that its ContentUrls are known for the next lookup. Returns the content object and the file that contains the
+	 * record, or null if there is no such record.
+	 */
+	private Object[] findRecord(String contentUrl) {
+		List<File> files = listFiles();
+		if (null == files) {
+			return null;
+		}
+
+		for (File sourceFile : getReadableFiles(files)) {
+			FileContentUrls fileContentUrls = streamingContentUrls.get(sourceFile);
+			Object[] foundRecord;
+			if (null == fileContentUrls || !fileContentUrls.isCurrent(sourceFile)) {
+				foundRecord = parseContentUrls(Collections.singletonList(sourceFile), contentUrl);
+			} else if (fileContentUrls.contentUrls.contains(contentUrl)) {
+				foundRecord = findRecord(sourceFile, contentUrl);
+			} else {
+				continue;
+			}
+			if (null != foundRecord) {
+				return foundRecord;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Parses the CSV file until the record with the given ContentUrl has been found.
+	 */
+	private Object[] findRecord(File sourceFile, final String contentUrl) {
+		final Object[] foundRecord = new Object[2];
+		parseFiles(Collections.singletonList(sourceFile), Collections.<File, AppendCheckpoint> emptyMap(), false,
+				new ContentVisitor() {
+					@Override
+					public boolean visit(File sourceFile, Content content) {
+						if (content.getContentUrl().equals(contentUrl)) {
+							foundRecord[0] = content;
+							foundRecord[1] = sourceFile;
+							return false;
+						}
+						return true;
+					}
+				});
+		return null != foundRecord[0] ? foundRecord : null;
+	}
+
+	/*
+	 * Finds the record with the given ContentUrl in the CSV files.
+	 */
+	private Content findContent(String contentUrl) {
+		Object[] foundRecord = findRecord(contentUrl);
+		return null != foundRecord ? (Content) foundRecord[0] : null;
+	}
+
+	/*
+	 * Parses the given files, at most sourceThreads files at once. The visitor is called by one thread at a time and
+	 * parsing of all files stops as soon as it returns false. If updateCheckpoints is true, the append checkpoints of
+	 * the files are moved behind their last complete records. Returns false, if a file could not be read completely.
+	 */
+	private boolean parseFiles(List<File> files, Map<File, AppendCheckpoint> resumeFrom, boolean updateCheckpoints,
+			final ContentVisitor visitor) {
+		long startTime = System.nanoTime();
+		long bytes = 0L;
+		for (File sourceFile : files) {
+			AppendCheckpoint checkpoint = resumeFrom.get(sourceFile);
+			bytes += Math.max(0L, sourceFile.length() - (null != checkpoint ? checkpoint.getOffset() : 0L));
+		}
+		final AtomicLong rows = new AtomicLong();
+		boolean completed = parseFilesConcurrently(files, resumeFrom, updateCheckpoints, new ContentVisitor() {
+			@Override
+			public boolean visit(File sourceFile, Content content) {
+				rows.incrementAndGet();
+				return visitor.visit(sourceFile, content);
+			}
+		});
+		statistics.run(Phase.PARSE, System.nanoTime() - startTime, rows.get(), bytes);
+		return completed;
+	}
+
+	private boolean parseFilesConcurrently(List<File> files, final Map<File, AppendCheckpoint> resumeFrom,
+			final boolean updateCheckpoints, final ContentVisitor visitor) {
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		final ContentVisitor synchronizedVisitor = new ContentVisitor() {
+			@Override
+			public boolean visit(File sourceFile, Content content) {
+				synchronized (stopped) {
+					if (stopped.get()) {
+						return false;
+					}
+					if (!visitor.visit(sourceFile, content)) {
+						stopped.set(true);
+						return false;
+					}
+					return true;
+				}
+			}
+		};
+
+		if (1 == sourceThreads || 2 > files.size()) {
+			boolean completed = true;
+			for (File sourceFile : files) {
+				if (stopped.get()) {
+					break;
+				}
+				completed &= parseFile(sourceFile, synchronizedVisitor, resumeFrom.get(sourceFile), updateCheckpoints);
+			}
+			return completed;
+		}
+
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(String.format("Parsing %d CSV files with %d threads.", files.size(),
+					Math.min(sourceThreads, files.size())));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(sourceThreads, files.size()));
+		try {
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (final File sourceFile : files) {
+				futures.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return stopped.get()
+								|| parseFile(sourceFile, synchronizedVisitor, resumeFrom.get(sourceFile),
+										updateCheckpoints);
+					}
+				}));
+			}
+
+			boolean completed = true;
+			for (Future<Boolean> future : futures) {
+				try {
+					completed &= future.get().booleanValue();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) e.getCause();
+					}
+					LOG.error("Error occured while reading CSV files.", e.getCause());
+					completed = false;
+				}
+			}
+			return completed;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while reading CSV files.", e);
+			return false;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Parses the CSV file starting at the given checkpoint, or at the beginning if the checkpoint is null. If
+	 * updateCheckpoint is true, the append checkpoint is moved behind the last complete record after the file has been
+	 * read completely. Returns false, if the file could not be read or the visitor has stopped reading.
+	 */
+	private boolean parseFile(File sourceFile, ContentVisitor visitor, AppendCheckpoint resumeFrom,
+			boolean updateCheckpoint) {
+		long fileModificationDate = getCachedFileModificationTimestamp(sourceFile);
+
+		// compressed files are decompressed while they are read, so they can only be read sequentially and completely
+		CsvCompression compression = CsvCompression.of(sourceFile);
+
+		// the block checksums are computed while the whole file is read sequentially
+		BlockChecksums.Builder blocksBuilder = syncBlocks && !streamingMode && null == resumeFrom
+				&& !compression.isCompressed() ? new BlockChecksums.Builder(delimeter, syncBlockSize) : null;
+		if (1 < parseThreads && null == resumeFrom && !compression.isCompressed() && null == blocksBuilder) {
+			return parseFileInParallel(sourceFile, visitor, updateCheckpoint, fileModificationDate);
+		}
+
+		// the record offset index is built while the whole file is read
+		long startOffset = null != resumeFrom ? resumeFrom.getOffset() : 0L;
+		RecordOffsetIndex index = recordOffsetIndexes.get(sourceFile);
+		RecordOffsetIndex.Builder indexBuilder = recordIndex && null == resumeFrom && !compression.isCompressed()
+				&& (null == index || !index.isValidFor(sourceFile)) ? new RecordOffsetIndex.Builder(delimeter) : null;
+		RecordScanner scanner = null;
+		if (null != indexBuilder) {
+			scanner = indexBuilder.getScanner();
+		} else if (updateCheckpoint && !compression.isCompressed()) {
+			scanner = new RecordScanner(delimeter, startOffset);
+		}
+
+		CsvRecordReader csvReader = null;
+		try {
+			InputStream inputStream = compression.isCompressed() ? compression.open(sourceFile) : openFile(
+					sourceFile, startOffset);
+			if (null != scanner) {
+				inputStream = new RecordScanningInputStream(inputStream, scanner);
+			}
+			if (null != blocksBuilder) {
+				inputStream = new RecordScanningInputStream(inputStream, blocksBuilder.getScanner());
+			}
+			csvReader = recordReaderType.open(inputStream, delimeter, charset);
+		} catch (IOException e) {
+			LOG.error("Could not read file: " + sourceFile.getPath(), e);
+			return false;
+		}
+
+		try {
+			if (null != resumeFrom) {
+				csvReader.setHeaders(resumeFrom.getHeaders());
+			} else if (csvReader.readHeaders()) {
+				if (null != indexBuilder) {
+					indexBuilder.addHeaders(csvReader.getHeaders());
+				}
+				if (null != blocksBuilder) {
+					blocksBuilder.addHeaders(csvReader.getHeaders());
+				}
+			}
+			List<Column> columns = getColumns(csvReader);
+
+			boolean stopped = false;
+			while (!stopped && csvReader.readRecord()) {
+				Content content = getContentFromCurrentRecord(columns, csvReader, fileModificationDate);
+				if (null != indexBuilder) {
+					indexBuilder.addRecord(content.getContentUrl());
+				}
+				if (null != blocksBuilder) {
+					blocksBuilder.addRecord(StringUtils.isNotBlank(content.getContentUrl()) ? content.getContentUrl()
+							: null);
+				}
+				stopped = StringUtils.isNotBlank(content.getContentUrl()) && !visitor.visit(sourceFile, content);
+			}
 
+			if (null != scanner && !stopped) {
+				if (updateCheckpoint) {
+					long headerEnd = null != resumeFrom ? resumeFrom.getHeaderEnd() : scanner.getFirstRecordEnd();
+					updateAppendCheckpoint(sourceFile, csvReader.getHeaders(), headerEnd, scanner.getLastRecordEnd());
+				}
+				if (null != indexBuilder) {
+					putRecordOffsetIndex(sourceFile, indexBuilder.build(sourceFile));
+				}
+			}
+			if (null != blocksBuilder && !stopped) {
+				putBlockChecksums(sourceFile, blocksBuilder);
+			}
+			return !stopped;
+		} catch (IOException e) {
+			LOG.error("Error occured while reading file: " + sourceFile.getPath(), e);
+			return false;
+		} finally {
+			csvReader.close();
+		}
+	}
+
+	/*
+	 * Parses chunks of the whole CSV file on parseThreads threads. The content objects are passed to the visitor in
+	 * the order of the file.
+	 */
+	private boolean parseFileInParallel(final File sourceFile, final ContentVisitor visitor, boolean updateCheckpoint,
+			final long fileModificationDate) {
+		ParallelCsvParser parser = new ParallelCsvParser(sourceFile, delimeter, charset, recordReaderType,
+				parseThreads, parseChunkSize);
+		try {
+			boolean completed = parser.parse(new ParallelCsvParser.ChunkParser() {
+				@Override
+				public List<Content> parse(CsvRecordReader csvReader) throws IOException {
+					List<Column> columns = getColumns(csvReader);
+					List<Content> contents = new ArrayList<Content>();
 					while (csvReader.readRecord()) {
-						Content content = getContentFromCurrentRecord(columns, csvReader);
+						Content content = getContentFromCurrentRecord(columns, csvReader, fileModificationDate);
 						if (StringUtils.isNotBlank(content.getContentUrl())) {
-							contentMap.put(content.getContentUrl(), content);
+							contents.add(content);
+						}
+					}
+					return contents;
+				}
+			}, new ParallelCsvParser.ChunkConsumer() {
+				@Override
+				public boolean accept(List<Content> contents) {
+					for (Content content : contents) {
+						if (!visitor.visit(sourceFile, content)) {
+							return false;
 						}
 					}
+					return true;
+				}
+			});
 
-				} catch (IOException e) {
-					LOG.error("Error occured while reading file: " + file.getPath(), e);
+			if (updateCheckpoint && completed && null != parser.getHeaders()) {
+				updateAppendCheckpoint(sourceFile, parser.getHeaders(), parser.getHeaderEnd(),
+						parser.getLastRecordEnd());
+			}
+			return completed;
+		} catch (IOException e) {
+			LOG.error("Error occured while reading file: " + sourceFile.getPath(), e);
+			return false;
+		}
+	}
+
+	/*
+	 * Opens the CSV file and positions the stream at the given offset.
+	 */
+	private InputStream openFile(File sourceFile, long offset) throws IOException {
+		FileInputStream inputStream = new FileInputStream(sourceFile);
+		if (0 < offset) {
+			try {
+				inputStream.getChannel().position(offset);
+			} catch (IOException e) {
+				inputStream.close();
+				throw e;
+			}
+		}
+		return inputStream;
+	}
+
+	/*
+	 * Reads only the blocks of the CSV file whose checksums have changed since the file has been read. The content
+	 * objects of the changed blocks replace the ones in the content map, the content objects whose records have been
+	 * deleted are removed. Returns false, if the file has to be read completely.
+	 */
+	private boolean parseChangedBlocks(File sourceFile, Set<String> parsedContentUrls) {
+		BlockChecksums oldChecksums = blockChecksums.remove(sourceFile);
+		if (null == oldChecksums || null == oldChecksums.getHeaders()) {
+			return false;
+		}
+		long fileModificationDate = getCachedFileModificationTimestamp(sourceFile);
+		long startTime = System.nanoTime();
+		long bytes = 0L;
+
+		BlockChecksums newChecksums;
+		List<BlockChecksums.Block> changedBlocks;
+		Map<String, Content> changedContents = new LinkedHashMap<String, Content>();
+		FileChannel channel = null;
+		try {
+			newChecksums = BlockChecksums.scan(sourceFile, oldChecksums.getHeaders(), delimeter, syncBlockSize);
+			if (!newChecksums.hasSameHeader(oldChecksums)) {
+				LOG.info("Header of CSV file has been changed, it will be read completely: " + sourceFile.getPath());
+				return false;
+			}
+			changedBlocks = newChecksums.getChangedBlocks(oldChecksums);
+
+			channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+			for (BlockChecksums.Block block : changedBlocks) {
+				ByteBuffer buffer = ByteBuffer.allocate((int) (block.getEnd() - block.getStart()));
+				readFully(channel, buffer, block.getStart());
+				bytes += buffer.capacity();
+
+				CsvRecordReader csvReader = recordReaderType.open(new ByteArrayInputStream(buffer.array()), delimeter,
+						charset);
+				try {
+					csvReader.setHeaders(oldChecksums.getHeaders());
+					List<Column> columns = getColumns(csvReader);
+					List<String> contentUrls = new ArrayList<String>();
+					while (csvReader.readRecord()) {
+						Content content = getContentFromCurrentRecord(columns, csvReader, fileModificationDate);
+						if (StringUtils.isNotBlank(content.getContentUrl())) {
+							contentUrls.add(content.getContentUrl());
+							changedContents.put(content.getContentUrl(), content);
+						}
+					}
+					block.setContentUrls(contentUrls);
 				} finally {
 					csvReader.close();
 				}
-			} else {
-				modified = false;
 			}
-		} else {
-			LOG.error("Cannot read CSV file: " + file.toURI().toString());
-		} // end if else
+		} catch (IOException e) {
+			LOG.warn("Could not read changed blocks of CSV file, it will be read completely: " + sourceFile.getPath(),
+					e);
+			return false;
+		} finally {
+			closeQuietly(channel);
+		}
+
+		Set<String> contentUrls = new HashSet<String>();
+		for (BlockChecksums.Block block : newChecksums.getBlocks()) {
+			contentUrls.addAll(block.getContentUrls());
+		}
+		Set<String> removedContentUrls = fileContentUrls.get(sourceFile);
+		removedContentUrls.removeAll(contentUrls);
+		contentMap.keySet().removeAll(removedContentUrls);
+		contentMap.putAll(changedContents);
+		fileContentUrls.put(sourceFile, contentUrls);
+		parsedContentUrls.addAll(changedContents.keySet());
+
+		blockChecksums.put(sourceFile, newChecksums);
+		recordOffsetIndexes.remove(sourceFile);
+		appendCheckpoints.remove(sourceFile);
+		statistics.run(Phase.PARSE, System.nanoTime() - startTime, changedContents.size(), bytes);
+
+		LOG.info(String.format("Read %d of %d blocks of CSV file: %s (%d content objects changed, %d removed)",
+				changedBlocks.size(), newChecksums.getBlocks().size(), sourceFile.getPath(), changedContents.size(),
+				removedContentUrls.size()));
+		return true;
+	}
+
+	private void putBlockChecksums(File sourceFile, BlockChecksums.Builder blocksBuilder) {
+		try {
+			blockChecksums.put(sourceFile, blocksBuilder.build(sourceFile));
+		} catch (IOException e) {
+			LOG.warn("Could not compute block checksums of CSV file: " + sourceFile.getPath(), e);
+			blockChecksums.remove(sourceFile);
+		}
+	}
+
+	/*
+	 * Returns the append checkpoints of the files that have only been appended to since the checkpoints have been
+	 * created.
+	 */
+	private Map<File, AppendCheckpoint> getValidAppendCheckpoints(List<File> files) {
+		Map<File, AppendCheckpoint> checkpoints = new HashMap<File, AppendCheckpoint>();
+		for (File sourceFile : files) {
+			AppendCheckpoint checkpoint = getValidAppendCheckpoint(sourceFile);
+			if (null != checkpoint) {
+				checkpoints.put(sourceFile, checkpoint);
+			}
+		}
+		return checkpoints;
+	}
 
-		return contentMap.keySet();
+	/*
+	 * Returns the append checkpoint, if the file has only been appended to since it has been created.
+	 */
+	private AppendCheckpoint getValidAppendCheckpoint(File sourceFile) {
+		AppendCheckpoint appendCheckpoint = appendCheckpoints.get(sourceFile);
+		if (null == appendCheckpoint) {
+			return null;
+		}
+		try {
+			if (appendCheckpoint.isValidFor(sourceFile)) {
+				LOG.info(String.format("Reading records appended after offset %d of CSV file: %s",
+						appendCheckpoint.getOffset(), sourceFile.getPath()));
+				return appendCheckpoint;
+			}
+			LOG.info("CSV file has been truncated or rewritten and will be read completely: " + sourceFile.getPath());
+		} catch (IOException e) {
+			LOG.warn("Could not verify append checkpoint of CSV file: " + sourceFile.getPath(), e);
+		}
+		appendCheckpoints.remove(sourceFile);
+		return null;
+	}
 
+	private void updateAppendCheckpoint(File sourceFile, String[] headers, long headerEnd, long lastRecordEnd) {
+		try {
+			AppendCheckpoint appendCheckpoint = AppendCheckpoint.create(sourceFile, headers, headerEnd, lastRecordEnd);
+			if (null != appendCheckpoint) {
+				appendCheckpoints.put(sourceFile, appendCheckpoint);
+			} else {
+				appendCheckpoints.remove(sourceFile);
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not create append checkpoint of CSV file: " + sourceFile.getPath(), e);
+			appendCheckpoints.remove(sourceFile);
+		}
 	}
 
-	protected Content getContentFromCurrentRecord(List<Column> columns, CsvReader csvReader) throws IOException,
-			UnsupportedEncodingException {
+	protected Content getContentFromCurrentRecord(List<Column> columns, CsvRecordReader csvReader,
+			long fileModificationDate) throws IOException, UnsupportedEncodingException {
 		Content content = new Content();
 		content.setType(contentType);
 		content.setProvider(getName());
 
 		if (0 > modificationDateColumn) {
-			content.setModificationDate(getCachedFileModificationTimestamp());
+			content.setModificationDate(fileModificationDate);
 		}
 
 		if (LOG.isDebugEnabled()) {
@@ -736,7 +2219,7 @@ public class CsvContentProvider extends AbstractContentProvider {
 
 				// set modificationDate
 				if (column.isModifiedDateColumn()) {
-					content.setModificationDate(extractModifactionDate(attributeValue));
+					content.setModificationDate(extractModifactionDate(attributeValue, fileModificationDate));
 				}
 
 				// TODO: replace with mapping of column to attribute names
@@ -785,11 +2268,11 @@ public class CsvContentProvider extends AbstractContentProvider {
 	}
 
 	private String createContentUrlWithHashFromRawRecord(String rawRecord) throws UnsupportedEncodingException {
-		byte[] digest = digestForContenUrlAsHashFromRecord.digest(rawRecord.getBytes());
-		return createContentUrl(null, digestForContenUrlAsHashFromRecord.getAlgorithm(), String.valueOf(Hex.encodeHex(digest)));
+		byte[] digest = hasherForContenUrlAsHashFromRecord.hash(rawRecord.getBytes(charsetForContenUrlAsHashFromRecord));
+		return createContentUrl(null, hasherForContenUrlAsHashFromRecord.getAlgorithm(), String.valueOf(Hex.encodeHex(digest)));
 	}
 
-	protected long extractModifactionDate(String attributeValue) {
+	protected long extractModifactionDate(String attributeValue, long fileModificationDate) {
 		long modificationDate = -1;
 
 		try {
@@ -799,7 +2282,7 @@ public class CsvContentProvider extends AbstractContentProvider {
 		}
 
 		if (0 > modificationDate) {
-			modificationDate = getCachedFileModificationTimestamp();
+			modificationDate = fileModificationDate;
 		}
 		return modificationDate;
 	}
@@ -810,19 +2293,12 @@ public class CsvContentProvider extends AbstractContentProvider {
 		if (1 == idColumns.size() && idAsContentUrl) {
 			contentUrl = attributeValue;
 		} else {
-			if (StringUtils.isEmpty(existingContentUrl)) {
-				contentUrl = String.format("%s/%s?%s=%s", CSV_CONTENT_URI_BASE,
-						URLEncoder.encode(contentType.toLowerCase(), "ISO-8859-1"),
-						URLEncoder.encode(columnName, "ISO-8859-1"), URLEncoder.encode(attributeValue, "ISO-8859-1"));
-			} else {
-				contentUrl = String.format("%s&%s=%s", existingContentUrl, URLEncoder.encode(columnName, "ISO-8859-1"),
-						URLEncoder.encode(attributeValue, "ISO-8859-1"));
-			}
+			contentUrl = contentUrlBuilder.append(existingContentUrl, columnName, attributeValue);
 		}
 		return contentUrl;
 	}
 
-	protected Attribute getAttributeFromCurrentColumnOfCurrentRecord(Column column, CsvReader csvReader)
+	protected Attribute getAttributeFromCurrentColumnOfCurrentRecord(Column column, CsvRecordReader csvReader)
 			throws IOException {
 		String attributeValue = getAttributeValueFromCurrentColumnOfCurrentRecord(column, csvReader);
 
@@ -837,11 +2313,11 @@ public class CsvContentProvider extends AbstractContentProvider {
 			attribute.setName(column.getAttributeName());
 			
 			if(null == column.getMultiValueDelimiter()) {
-				attribute.addValue(attributeValue);
+				attribute.addValue(column.intern(attributeValue));
 			} else {
-				String[] multiValues = column.getMultiValueDelimiter().split(attributeValue);
+				String[] multiValues = column.splitMultiValue(attributeValue);
 				for (String value : multiValues) {
-					attribute.addValue(value);
+					attribute.addValue(column.intern(value));
 				}
 			}
 			if (column.isTimestampColumn()) {
@@ -855,7 +2331,7 @@ public class CsvContentProvider extends AbstractContentProvider {
 		return attribute;
 	}
 
-	protected String getAttributeValueFromCurrentColumnOfCurrentRecord(Column column, CsvReader csvReader)
+	protected String getAttributeValueFromCurrentColumnOfCurrentRecord(Column column, CsvRecordReader csvReader)
 			throws IOException {
 		String attributeValue = csvReader.get(column.getIndex()).trim();
 		// removing quotes at the beginning and at the end
@@ -865,7 +2341,17 @@ public class CsvContentProvider extends AbstractContentProvider {
 		return attributeValue;
 	}
 
-	protected List<Column> getColumns(CsvReader csvReader) throws IOException {
+	/*
+	 * Returns the immutable columns of the reader's header line. The columns are computed once per header line and
+	 * shared by all readers of the same file.
+	 */
+	protected List<Column> getColumns(CsvRecordReader csvReader) throws IOException {
+		String[] headers = csvReader.getHeaders();
+		ColumnPlan plan = columnPlan;
+		if (null != plan && Arrays.equals(plan.headers, headers)) {
+			return plan.columns;
+		}
+
 		List<Column> columns = new ArrayList<Column>();
 
 		// processing first row
@@ -875,25 +2361,74 @@ public class CsvContentProvider extends AbstractContentProvider {
 			String columnName = csvReader.getHeader(i);
 			Integer columnNumber = Integer.valueOf(i);
 			if (!ignoreColumns.contains(columnNumber) && StringUtils.isNotBlank(columnName)) {
-				Column column = new Column(i, columnName);
-
-				column.setKeyColumn(keyColumns.contains(columnNumber));
-				column.setTimestampColumn(timestampColumns.contains(columnNumber));
-				column.setIdColumn(idColumns.contains(columnNumber));
-
-				column.setNameColumn(i == nameColumn);
-				column.setFulltextColumn(i == fulltextColumn);
-				column.setModifiedDateColumn(i == modificationDateColumn);
-				
-				column.setMultiValueDelimiter(multiValueDelimiters.get(columnNumber));
+				int roles = 0;
+				if (keyColumns.contains(columnNumber)) {
+					roles |= Column.KEY;
+				}
+				if (timestampColumns.contains(columnNumber)) {
+					roles |= Column.TIMESTAMP;
+				}
+				if (idColumns.contains(columnNumber)) {
+					roles |= Column.ID;
+				}
+				if (i == nameColumn) {
+					roles |= Column.NAME;
+				}
+				if (i == fulltextColumn) {
+					roles |= Column.FULLTEXT;
+				}
+				if (i == modificationDateColumn) {
+					roles |= Column.MODIFIED_DATE;
+				}
 
+				Column column = new Column(i, columnName, roles, multiValueDelimiters.get(columnNumber));
+				if (0 < dictionaryMaxSize && 0 == (roles & (Column.ID | Column.FULLTEXT | Column.MODIFIED_DATE))) {
+					// ids, fulltexts and modification dates are rarely repeated
+					column = column.withDictionary(getValueDictionary(column.getAttributeName()));
+				}
 				columns.add(column);
 			}
 		}
 
+		columns = Collections.unmodifiableList(columns);
+		if (null != headers) {
+			columnPlan = new ColumnPlan(headers, columns);
+		}
 		return columns;
 	}
 
+	private ValueDictionary getValueDictionary(String attributeName) {
+		ValueDictionary dictionary = valueDictionaries.get(attributeName);
+		if (null == dictionary) {
+			dictionary = new ValueDictionary(attributeName, dictionaryMaxSize);
+			valueDictionaries.put(attributeName, dictionary);
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Returns the dictionaries of the column values by attribute name, which report the number of distinct values and
+	 * the hit rate per column.
+	 */
+	public Map<String, ValueDictionary> getValueDictionaries() {
+		return Collections.unmodifiableMap(valueDictionaries);
+	}
+
+	/**
+	 * Returns the statistics of the synchronization phases, which are also registered as an MBean.
+	 */
+	public SynchronizationStatistics getStatistics() {
+		return statistics;
+	}
+
+	private void logValueDictionaries() {
+		if (LOG.isInfoEnabled()) {
+			for (ValueDictionary dictionary : valueDictionaries.values()) {
+				LOG.info("Value dictionary of column " + dictionary);
+			}
+		}
+	}
+
 	@Override
 	public void performAction(String actionName, Collection<Parameter> parameters, Content content) {
 		try {
@@ -933,140 +2468,787 @@ public class CsvContentProvider extends AbstractContentProvider {
 		MODIFICATION_TIMESTAMP_CACHE.clear();
 	}
 
-	public synchronized void updateCsv(Content content) {
+	/**
+	 * Queues the updated content object, which is written to the CSV file and the repository in the background.
+	 * Updates of the same content object that are queued before the write are coalesced.
+	 * 
+	 * @param content
+	 *            the updated content object
+	 */
+	public void enqueueUpdate(Content content) {
+		if (null == content) {
+			LOG.error("Cannot update content: null");
+			return;
+		}
+		// a queue that has been closed by init() or destroy() in the meantime rejects the update
+		UpdateQueue queue = updateQueue;
+		if (null == queue || !queue.enqueue(content)) {
+			updateCsv(content);
+		}
+	}
+
+	/**
+	 * Writes the queued updates to the CSV files and the repository.
+	 */
+	public void flushUpdates() {
+		UpdateQueue queue = updateQueue;
+		if (null != queue) {
+			queue.flush();
+		}
+	}
+
+	public void updateCsv(Content content) {
 		if (null == content) {
 			LOG.error("Cannot update content: null");
+			return;
 		}
+		updateCsv(Collections.singletonList(content));
+	}
 
-		// update content in CSV file
-		// strategy: read original file and write to temporary file synchronized
+	/**
+	 * Writes the updated content objects to the CSV files. Every file is rewritten at most once, then the content
+	 * objects are updated in the repository. No synchronization runs meanwhile.
+	 * 
+	 * @param contents
+	 *            the updated content objects
+	 */
+	public void updateCsv(Collection<Content> contents) {
+		synchronized (synchronizationLock) {
+			long startTime = System.nanoTime();
+			Map<String, Content> updates = new LinkedHashMap<String, Content>();
+			for (Content content : contents) {
+				updates.put(content.getContentUrl(), content);
+			}
 
-		// 1. open reader
-		CsvReader csvReader = null;
+			Map<File, Map<String, Content>> updatesByFile = new LinkedHashMap<File, Map<String, Content>>();
+			for (Entry<String, File> entry : findSourceFiles(updates.keySet()).entrySet()) {
+				Map<String, Content> fileUpdates = updatesByFile.get(entry.getValue());
+				if (null == fileUpdates) {
+					fileUpdates = new HashMap<String, Content>();
+					updatesByFile.put(entry.getValue(), fileUpdates);
+				}
+				fileUpdates.put(entry.getKey(), updates.remove(entry.getKey()));
+			}
+			for (String contentUrl : updates.keySet()) {
+				LOG.error("Could not find CSV record for content: " + contentUrl);
+			}
+
+			for (Entry<File, Map<String, Content>> entry : updatesByFile.entrySet()) {
+				updateCsv(entry.getKey(), entry.getValue());
+			}
+			statistics.run(Phase.UPDATE_CSV, System.nanoTime() - startTime, contents.size(), 0L);
+		}
+	}
+
+	/*
+	 * Returns the CSV files that contain the records with the given ContentUrls. The files that are not known from
+	 * the last parse are searched in a single pass.
+	 */
+	private Map<String, File> findSourceFiles(Collection<String> contentUrls) {
+		final Map<String, File> sourceFiles = new HashMap<String, File>();
+		if (null != fileSource && fileSource.isSingleFile()) {
+			for (String contentUrl : contentUrls) {
+				sourceFiles.put(contentUrl, file);
+			}
+			return sourceFiles;
+		}
+
+		final Set<String> missingContentUrls = new HashSet<String>(contentUrls);
+		for (Entry<File, Set<String>> entry : fileContentUrls.entrySet()) {
+			for (Iterator<String> contentUrlIterator = missingContentUrls.iterator(); contentUrlIterator.hasNext();) {
+				String contentUrl = contentUrlIterator.next();
+				if (entry.getValue().contains(contentUrl)) {
+					sourceFiles.put(contentUrl, entry.getKey());
+					contentUrlIterator.remove();
+				}
+			}
+		}
+
+		List<File> files = missingContentUrls.isEmpty() ? null : listFiles();
+		if (null != files) {
+			parseFiles(getReadableFiles(files), Collections.<File, AppendCheckpoint> emptyMap(), false,
+					new ContentVisitor() {
+						@Override
+						public boolean visit(File sourceFile, Content content) {
+							if (missingContentUrls.remove(content.getContentUrl())) {
+								sourceFiles.put(content.getContentUrl(), sourceFile);
+							}
+							return !missingContentUrls.isEmpty();
+						}
+					});
+		}
+		return sourceFiles;
+	}
+
+	/*
+	 * Writes the updated records to the CSV file. Records are located by the record offset index of the file. Records
+	 * whose length does not change are overwritten in place, otherwise the file is copied up to the first changed
+	 * record and the rest is rewritten into a temporary file in the same directory, which then replaces the file.
+	 */
+	private void updateCsv(File sourceFile, Map<String, Content> updates) {
+		if (CsvCompression.of(sourceFile).isCompressed()) {
+			LOG.error("Cannot update compressed CSV file: " + sourceFile.getPath());
+			return;
+		}
+		if (!sourceFile.canWrite()) {
+			LOG.error("CSV file is not writeable: " + sourceFile.getAbsolutePath());
+			return;
+		}
+		if (!RecordScanner.isSupported(charset, delimeter)) {
+			// the record boundaries cannot be found on byte level
+			rewriteCsv(sourceFile, updates);
+			return;
+		}
+
+		RecordOffsetIndex index;
 		try {
-			csvReader = new CsvReader(new FileInputStream(file), delimeter, charset);
-		} catch (FileNotFoundException e) {
-			LOG.error("Could not read file: " + file.getPath(), e);
+			index = getRecordOffsetIndex(sourceFile);
+		} catch (IOException e) {
+			LOG.error("Could not index records of file: " + sourceFile.getPath(), e);
 			return;
 		}
 
-		// 2. open writer
-		File tempFile = null;
+		SortedMap<Integer, byte[]> updatedRecords = new TreeMap<Integer, byte[]>();
+		List<Content> updatedContents = new ArrayList<Content>();
+		boolean sameLength = true;
+		FileChannel channel = null;
 		try {
-			tempFile = File.createTempFile(file.getName() + "-", "");
+			Map<String, Column> columnsByAttributeName = getColumnsByAttributeName(getColumns(index.getHeaders()));
+			channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			for (Content content : updates.values()) {
+				int recordNumber = index.getRecordNumber(content.getContentUrl());
+				if (0 > recordNumber) {
+					LOG.error("Could not find CSV record for content: " + content.getContentUrl());
+					continue;
+				}
+				long start = index.getStart(recordNumber);
+				byte[] record = new byte[(int) (index.getEnd(recordNumber) - start)];
+				readFully(channel, ByteBuffer.wrap(record), start);
+
+				byte[] updatedRecord = updateRecord(record, index.getHeaders(), columnsByAttributeName, content);
+				sameLength &= updatedRecord.length == record.length;
+				updatedRecords.put(recordNumber, updatedRecord);
+				updatedContents.add(content);
+			}
+			if (updatedRecords.isEmpty()) {
+				return;
+			}
+
+			if (sameLength) {
+				for (Entry<Integer, byte[]> entry : updatedRecords.entrySet()) {
+					writeFully(channel, ByteBuffer.wrap(entry.getValue()), index.getStart(entry.getKey()));
+				}
+				channel.force(false);
+			}
 		} catch (IOException e) {
-			LOG.error("Could not create temporary file!", e);
+			LOG.error("Error occured while updating file: " + sourceFile.getPath(), e);
+			recordOffsetIndexes.remove(sourceFile);
+			return;
+		} finally {
+			closeQuietly(channel);
 		}
 
-		if (null != tempFile) {
-			CsvWriter csvWriter = null;
+		if (!sameLength) {
 			try {
-				// use FileWriter constructor that specifies open for appending
-				csvWriter = new CsvWriter(new FileOutputStream(tempFile, false), delimeter, charset);
+				replaceFrom(sourceFile, index, updatedRecords);
+			} catch (IOException e) {
+				LOG.error("Error occured while updating file: " + sourceFile.getPath(), e);
+				recordOffsetIndexes.remove(sourceFile);
+				return;
+			}
+		}
 
-				// read and write the header line
-				csvReader.readHeaders();
-				for (String header : csvReader.getHeaders()) {
-					csvWriter.write(header);
-				}
-				csvWriter.endRecord();
+		SortedMap<Integer, Long> newLengths = new TreeMap<Integer, Long>();
+		for (Entry<Integer, byte[]> entry : updatedRecords.entrySet()) {
+			newLengths.put(entry.getKey(), Long.valueOf(entry.getValue().length));
+		}
+		index.resize(newLengths);
+		index.setFileState(sourceFile);
+		putRecordOffsetIndex(sourceFile, index);
 
-				List<Column> columns = getColumns(csvReader);
+		publishUpdates(updatedContents);
+	}
 
-				while (csvReader.readRecord()) {
-					String[] values = csvReader.getValues();
+	/*
+	 * Returns the record offset index of the CSV file. The index is read from the sidecar file or built by a single
+	 * pass over the file, if the file has been changed since the index has been built.
+	 */
+	private RecordOffsetIndex getRecordOffsetIndex(File sourceFile) throws IOException {
+		RecordOffsetIndex index = recordOffsetIndexes.get(sourceFile);
+		if (null != index && index.isValidFor(sourceFile)) {
+			return index;
+		}
+		recordOffsetIndexes.remove(sourceFile);
 
-					String contentUrl = null;
-					for (Column column : columns) {
-						if (column.isIdColumn()) {
-							String attributeValue = getAttributeValueFromCurrentColumnOfCurrentRecord(column, csvReader);
-							if (StringUtils.isNotBlank(attributeValue)) {
-								contentUrl = createContentUrl(contentUrl, column.getName(), attributeValue);
-							}
-						}
-					}
+		if (recordIndex) {
+			index = RecordOffsetIndex.load(getRecordIndexFile(sourceFile), getRecordIndexSignature(), sourceFile);
+			if (null != index) {
+				recordOffsetIndexes.put(sourceFile, index);
+				return index;
+			}
+		}
 
-					if (null != contentUrl && contentUrl.equals(content.getContentUrl())) {
-						// update record values
-						if (0 <= fulltextColumn) {
-							values[fulltextColumn] = content.getFulltext();
-						}
+		RecordOffsetIndex.Builder indexBuilder = new RecordOffsetIndex.Builder(delimeter);
+		CsvRecordReader csvReader = recordReaderType.open(new RecordScanningInputStream(new FileInputStream(
+				sourceFile), indexBuilder.getScanner()), delimeter, charset);
+		try {
+			if (csvReader.readHeaders()) {
+				indexBuilder.addHeaders(csvReader.getHeaders());
+			}
+			List<Column> columns = getColumns(csvReader);
+			while (csvReader.readRecord()) {
+				indexBuilder.addRecord(getContentUrlOfCurrentRecord(columns, csvReader));
+			}
+		} finally {
+			csvReader.close();
+		}
+		index = indexBuilder.build(sourceFile);
+		putRecordOffsetIndex(sourceFile, index);
+		return index;
+	}
 
-						for (Attribute attribute : content.getAttributes()) {
-							for (Column column : columns) {
-								if (column.getAttributeName().equals(attribute.getName())) {
-									values[column.getIndex()] = attribute.getValue();
-									break;
-								}
-							}
-						}
-					}
+	/*
+	 * Keeps the record offset index of the CSV file and writes it to the sidecar file.
+	 */
+	private void putRecordOffsetIndex(File sourceFile, RecordOffsetIndex index) {
+		recordOffsetIndexes.put(sourceFile, index);
+		if (recordIndex) {
+			try {
+				index.save(getRecordIndexFile(sourceFile), getRecordIndexSignature());
+			} catch (IOException e) {
+				LOG.warn("Could not write record index of file: " + sourceFile.getPath(), e);
+			}
+		}
+	}
 
-					csvWriter.writeRecord(values);
-				}
+	private static File getRecordIndexFile(File sourceFile) {
+		return new File(sourceFile.getPath() + CSV_RECORD_INDEX_SUFFIX);
+	}
+
+	/*
+	 * Returns the settings from which the ContentUrls and the record ranges of an index are derived. An index that has
+	 * been written with other settings is not used.
+	 */
+	private String getRecordIndexSignature() {
+		StringBuilder signature = new StringBuilder();
+		signature.append(delimeter).append('|').append(charset.name()).append('|').append(contentType).append('|')
+				.append(idColumns).append('|').append(idAsContentUrl);
+		if (contenUrlAsHashFromRecord) {
+			signature.append('|').append(hasherForContenUrlAsHashFromRecord.getAlgorithm()).append('|')
+					.append(charsetForContenUrlAsHashFromRecord.name());
+		}
+		return signature.toString();
+	}
+
+	/*
+	 * Reads the record with the given ContentUrl from the CSV files that have a record offset index. Returns the
+	 * content object and the file that contains the record, or null if the record could not be found that way.
+	 */
+	private Object[] readIndexedContent(String contentUrl) {
+		List<File> files = listFiles();
+		if (null == files) {
+			return null;
+		}
 
+		for (File sourceFile : files) {
+			if (!isReadableFile(sourceFile) || CsvCompression.of(sourceFile).isCompressed()) {
+				return null;
+			}
+			RecordOffsetIndex index;
+			try {
+				index = getRecordOffsetIndex(sourceFile);
 			} catch (IOException e) {
-				LOG.error(
-						String.format("Error occured while either reading file '%s' or writing file '%s'.",
-								file.getPath(), tempFile.getPath()), e);
-			} finally {
-				if (null != csvWriter) {
-					csvWriter.close();
+				LOG.warn("Could not index records of file: " + sourceFile.getPath(), e);
+				return null;
+			}
+
+			int recordNumber = index.getRecordNumber(contentUrl);
+			if (0 <= recordNumber) {
+				// the record gets the modification date of the last read of the file, like the parsed records
+				long fileModificationDate = getCachedFileModificationTimestamp(sourceFile);
+				if (0L == fileModificationDate) {
+					fileModificationDate = sourceFile.lastModified();
 				}
-				if (null != csvReader) {
-					csvReader.close();
+				try {
+					Content content = readRecord(sourceFile, index, recordNumber, fileModificationDate);
+					if (null != content && contentUrl.equals(content.getContentUrl())) {
+						return new Object[] { content, sourceFile };
+					}
+				} catch (IOException e) {
+					LOG.warn("Could not read indexed record of file: " + sourceFile.getPath(), e);
 				}
+				return null;
 			}
 		}
+		LOG.debug("Record index does not contain content: " + contentUrl);
+		return null;
+	}
+
+	/*
+	 * Reads and decodes a single record of the CSV file.
+	 */
+	private Content readRecord(File sourceFile, RecordOffsetIndex index, int recordNumber, long fileModificationDate)
+			throws IOException {
+		long start = index.getStart(recordNumber);
+		byte[] record = new byte[(int) (index.getEnd(recordNumber) - start)];
+		FileChannel channel = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+		try {
+			readFully(channel, ByteBuffer.wrap(record), start);
+		} finally {
+			channel.close();
+		}
 
-		if (file.canWrite()) {
-			if (file.delete()) {
-				if (tempFile.renameTo(file)) {
-					LOG.info("CSV record updated successfully: " + content.getContentUrl());
+		CsvRecordReader csvReader = recordReaderType.open(new ByteArrayInputStream(record, 0,
+				getRecordLength(record)), delimeter, charset);
+		try {
+			csvReader.setHeaders(index.getHeaders());
+			if (!csvReader.readRecord()) {
+				return null;
+			}
+			return getContentFromCurrentRecord(getColumns(csvReader), csvReader, fileModificationDate);
+		} finally {
+			csvReader.close();
+		}
+	}
 
-					// update content in content map
-					contentMap.put(content.getContentUrl(), content);
+	/*
+	 * Returns the length of the record without its terminator.
+	 */
+	private static int getRecordLength(byte[] record) {
+		int length = record.length;
+		if (0 < length && ('\r' == record[length - 1] || '\n' == record[length - 1])) {
+			length--;
+		}
+		return length;
+	}
 
-					// update content in repository
-					try {
-						updateContent(content);
-						if (LOG.isDebugEnabled()) {
-							LOG.debug("Synchronized content: " + content.getContentUrl());
-						}
-					} catch (IQserException e) {
-						LOG.error(
-								String.format("Unexpected error while trying to update content: %s",
-										content.getContentUrl()), e);
+	/*
+	 * Returns the ContentUrl of the current record that is built from the id columns or from the hash of the record.
+	 */
+	private String getContentUrlOfCurrentRecord(List<Column> columns, CsvRecordReader csvReader) throws IOException {
+		if (contenUrlAsHashFromRecord) {
+			return createContentUrlWithHashFromRawRecord(csvReader.getRawRecord());
+		}
+		String contentUrl = null;
+		for (Column column : columns) {
+			if (column.isIdColumn()) {
+				String attributeValue = getAttributeValueFromCurrentColumnOfCurrentRecord(column, csvReader);
+				if (StringUtils.isNotBlank(attributeValue)) {
+					contentUrl = createContentUrl(contentUrl, column.getName(), attributeValue);
+				}
+			}
+		}
+		return contentUrl;
+	}
+
+	/*
+	 * Returns the bytes of the record with the values of the content object. The record terminator is kept.
+	 */
+	private byte[] updateRecord(byte[] record, String[] headers, Map<String, Column> columnsByAttributeName,
+			Content content) throws IOException {
+		int length = getRecordLength(record);
+		CsvRecordReader csvReader = recordReaderType.open(new ByteArrayInputStream(record, 0, length), delimeter,
+				charset);
+		String[] values;
+		try {
+			csvReader.setHeaders(headers);
+			values = csvReader.readRecord() ? csvReader.getValues() : new String[0];
+			if (values.length < headers.length) {
+				int valueCount = values.length;
+				values = Arrays.copyOf(values, headers.length);
+				Arrays.fill(values, valueCount, values.length, "");
+			}
+			updateValues(values, columnsByAttributeName, content);
+		} finally {
+			csvReader.close();
+		}
+
+		StringWriter writer = new StringWriter(length + 16);
+		CsvWriter csvWriter = new CsvWriter(writer, delimeter);
+		for (String value : values) {
+			csvWriter.write(value);
+		}
+		csvWriter.close();
+		byte[] bytes = writer.toString().getBytes(charset);
+
+		// the record terminator is kept
+		byte[] updatedRecord = Arrays.copyOf(bytes, bytes.length + record.length - length);
+		System.arraycopy(record, length, updatedRecord, bytes.length, record.length - length);
+		return updatedRecord;
+	}
+
+	/*
+	 * Returns the columns of the given header line.
+	 */
+	private List<Column> getColumns(String[] headers) throws IOException {
+		CsvRecordReader csvReader = recordReaderType.open(new ByteArrayInputStream(new byte[0]), delimeter, charset);
+		try {
+			csvReader.setHeaders(headers);
+			return getColumns(csvReader);
+		} finally {
+			csvReader.close();
+		}
+	}
+
+	/*
+	 * Returns the columns by their attribute names. If several columns have the same attribute name, the first one is
+	 * returned.
+	 */
+	private static Map<String, Column> getColumnsByAttributeName(List<Column> columns) {
+		Map<String, Column> columnsByAttributeName = new HashMap<String, Column>();
+		for (Column column : columns) {
+			if (!columnsByAttributeName.containsKey(column.getAttributeName())) {
+				columnsByAttributeName.put(column.getAttributeName(), column);
+			}
+		}
+		return columnsByAttributeName;
+	}
+
+	/*
+	 * Sets the fulltext and the attribute values of the content object in the values of its record.
+	 */
+	private void updateValues(String[] values, Map<String, Column> columnsByAttributeName, Content content) {
+		if (0 <= fulltextColumn && fulltextColumn < values.length) {
+			values[fulltextColumn] = content.getFulltext();
+		}
+
+		for (Attribute attribute : content.getAttributes()) {
+			Column column = columnsByAttributeName.get(attribute.getName());
+			if (null != column && column.getIndex() < values.length) {
+				values[column.getIndex()] = attribute.getValue();
+			}
+		}
+	}
+
+	/*
+	 * Copies the file up to the first updated record into a temporary file in the same directory, writes the rest
+	 * with the updated records and replaces the file atomically.
+	 */
+	private void replaceFrom(File sourceFile, RecordOffsetIndex index, SortedMap<Integer, byte[]> updatedRecords)
+			throws IOException {
+		File tempFile = File.createTempFile(sourceFile.getName() + "-", ".tmp", sourceFile.getAbsoluteFile()
+				.getParentFile());
+		boolean replaced = false;
+		try {
+			FileChannel in = FileChannel.open(sourceFile.toPath(), StandardOpenOption.READ);
+			try {
+				FileChannel out = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE);
+				try {
+					long position = 0L;
+					for (Entry<Integer, byte[]> entry : updatedRecords.entrySet()) {
+						transferFully(in, position, index.getStart(entry.getKey()) - position, out);
+						writeFully(out, ByteBuffer.wrap(entry.getValue()), out.position());
+						out.position(out.position() + entry.getValue().length);
+						position = index.getEnd(entry.getKey());
 					}
-				} else {
-					LOG.error("Could not update CSV record for content: " + content.getContentUrl());
+					transferFully(in, position, in.size() - position, out);
+					out.force(false);
+				} finally {
+					out.close();
 				}
-			} else {
-				LOG.error("CSV file is not deleteable: " + file.getAbsolutePath());
+			} finally {
+				in.close();
 			}
-		} else {
-			LOG.error("CSV file is not writeable: " + file.getAbsolutePath());
+			moveAtomically(tempFile, sourceFile);
+			replaced = true;
+		} finally {
+			if (!replaced && !tempFile.delete()) {
+				LOG.warn("Could not delete temporary file: " + tempFile.getPath());
+			}
+		}
+	}
+
+	private static void transferFully(FileChannel in, long position, long count, FileChannel out) throws IOException {
+		while (0 < count) {
+			long transferred = in.transferTo(position, count, out);
+			if (0 >= transferred) {
+				throw new IOException("Unexpected end of file at offset " + position);
+			}
+			position += transferred;
+			count -= transferred;
+		}
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, position);
+			if (0 > count) {
+				throw new IOException("Unexpected end of file at offset " + position);
+			}
+			position += count;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		if (null != channel) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOG.debug("Could not close channel.", e);
+			}
+		}
+	}
+
+	/*
+	 * Replaces the target file by the source file, atomically if the file system supports it.
+	 */
+	private static void moveAtomically(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			LOG.warn("Atomic move is not supported, replacing file: " + target.getPath());
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/*
+	 * Updates the content objects in the content map and in the repository.
+	 */
+	private void publishUpdates(Collection<Content> contents) {
+		for (Content content : contents) {
+			LOG.info("CSV record updated successfully: " + content.getContentUrl());
+
+			// update content in content map
+			contentMap.put(content.getContentUrl(), content);
+
+			// update content in repository
+			try {
+				updateContent(content);
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("Synchronized content: " + content.getContentUrl());
+				}
+			} catch (IQserException e) {
+				LOG.error(String.format("Unexpected error while trying to update content: %s",
+						content.getContentUrl()), e);
+			}
+		}
+	}
+
+	/*
+	 * Rewrites the whole CSV file with the updated records into a temporary file in the same directory, which then
+	 * replaces the file. This is used for charsets in which the record boundaries cannot be found on byte level.
+	 */
+	private void rewriteCsv(File sourceFile, Map<String, Content> updates) {
+		Map<String, Content> updatedContents = new LinkedHashMap<String, Content>();
+
+		// 1. open reader
+		CsvRecordReader csvReader = null;
+		try {
+			csvReader = recordReaderType.open(new FileInputStream(sourceFile), delimeter, charset);
+		} catch (FileNotFoundException e) {
+			LOG.error("Could not read file: " + sourceFile.getPath(), e);
+			return;
+		}
+
+		// 2. open writer
+		File tempFile = null;
+		try {
+			tempFile = File.createTempFile(sourceFile.getName() + "-", ".tmp", sourceFile.getAbsoluteFile()
+					.getParentFile());
+		} catch (IOException e) {
+			LOG.error("Could not create temporary file!", e);
+			csvReader.close();
+			return;
+		}
+
+		boolean written = false;
+		CsvWriter csvWriter = null;
+		try {
+			csvWriter = new CsvWriter(new FileOutputStream(tempFile, false), delimeter, charset);
+
+			// read and write the header line
+			csvReader.readHeaders();
+			for (String header : csvReader.getHeaders()) {
+				csvWriter.write(header);
+			}
+			csvWriter.endRecord();
+
+			List<Column> columns = getColumns(csvReader);
+			Map<String, Column> columnsByAttributeName = getColumnsByAttributeName(columns);
+			while (csvReader.readRecord()) {
+				String[] values = csvReader.getValues();
+
+				String contentUrl = getContentUrlOfCurrentRecord(columns, csvReader);
+				Content content = null != contentUrl ? updates.get(contentUrl) : null;
+				if (null != content) {
+					updatedContents.put(contentUrl, content);
+					updateValues(values, columnsByAttributeName, content);
+				}
+
+				csvWriter.writeRecord(values);
+			}
+			written = true;
+		} catch (IOException e) {
+			LOG.error(String.format("Error occured while either reading file '%s' or writing file '%s'.",
+					sourceFile.getPath(), tempFile.getPath()), e);
+		} finally {
+			if (null != csvWriter) {
+				csvWriter.close();
+			}
+			csvReader.close();
+		}
+
+		try {
+			if (written) {
+				moveAtomically(tempFile, sourceFile);
+			}
+		} catch (IOException e) {
+			LOG.error("Could not update CSV records in file: " + sourceFile.getPath(), e);
+			written = false;
+		} finally {
+			if (!written && !tempFile.delete()) {
+				LOG.warn("Could not delete temporary file: " + tempFile.getPath());
+			}
+		}
+		if (!written) {
+			return;
+		}
+
+		for (String contentUrl : updates.keySet()) {
+			if (!updatedContents.containsKey(contentUrl)) {
+				LOG.error("Could not find CSV record for content: " + contentUrl);
+			}
+		}
+		publishUpdates(updatedContents.values());
+	}
+
+	/*
+	 * Callback for content objects that are created while parsing the CSV file.
+	 */
+	private interface ContentVisitor {
+
+		/*
+		 * Returns false, if parsing should be stopped.
+		 */
+		boolean visit(File sourceFile, Content content);
+	}
+
+	/*
+	 * The Bloom filter of the ContentUrls of a CSV file and the modification timestamp and length of the file, when
+	 * its parse started. The filter is outdated, if the file has been changed since.
+	 */
+	private static final class FileContentUrlFilter {
+		private final long lastModified;
+		private final long length;
+		private final ContentUrlFilter filter;
+
+		private FileContentUrlFilter(File sourceFile, ContentUrlFilter filter) {
+			this.lastModified = sourceFile.lastModified();
+			this.length = sourceFile.length();
+			this.filter = filter;
+		}
+
+		private boolean isCurrent(File sourceFile) {
+			return lastModified == sourceFile.lastModified() && length == sourceFile.length();
+		}
+	}
+
+	/*
+	 * The ContentUrls of a CSV file and the modification timestamp and length of the file, when its parse started.
+	 */
+	private static final class FileContentUrls {
+		private final long lastModified;
+		private final long length;
+		private final Set<String> contentUrls = new HashSet<String>();
+
+		private FileContentUrls(File sourceFile) {
+			this.lastModified = sourceFile.lastModified();
+			this.length = sourceFile.length();
+		}
+
+		private boolean isCurrent(File sourceFile) {
+			return lastModified == sourceFile.lastModified() && length == sourceFile.length();
 		}
 	}
 
+	/*
+	 * The columns computed for a header line.
+	 */
+	private static final class ColumnPlan {
+		private final String[] headers;
+		private final List<Column> columns;
+
+		private ColumnPlan(String[] headers, List<Column> columns) {
+			this.headers = headers;
+			this.columns = columns;
+		}
+	}
+
+	/**
+	 * An immutable column of the CSV file. The attribute name and the roles are computed once, when the header line is
+	 * read.
+	 */
 	public static class Column {
+		public static final int KEY = 1;
+		public static final int TIMESTAMP = 1 << 1;
+		public static final int ID = 1 << 2;
+		public static final int NAME = 1 << 3;
+		public static final int FULLTEXT = 1 << 4;
+		public static final int MODIFIED_DATE = 1 << 5;
+
+		/* Characters that have a special meaning in regular expressions. */
+		private static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+
 		private final int index;
 		private final String name;
+		private final String attributeName;
+		private final int roles;
+		private final Pattern multiValueDelimiter;
+
+		/* The multiValue delimiter, if it is a single literal character, otherwise -1. */
+		private final int multiValueDelimiterChar;
 
-		private boolean modifiedDateColumn = false;
-		private boolean keyColumn = false;
-		private boolean timestampColumn = false;
-		private boolean idColumn = false;
-		private boolean fulltextColumn = false;
-		private boolean nameColumn = false;
-		private Pattern multiValueDelimiter;
+		/* The dictionary of repeated values or null. */
+		private final ValueDictionary dictionary;
 
 		public Column(int index, String name) {
+			this(index, name, 0, null);
+		}
+
+		public Column(int index, String name, int roles, Pattern multiValueDelimiter) {
 			this.index = index;
 			this.name = name;
+			this.attributeName = toAttributeName(name);
+			this.roles = roles;
+			this.multiValueDelimiter = multiValueDelimiter;
+			this.multiValueDelimiterChar = null != multiValueDelimiter ? literalCharacter(multiValueDelimiter.pattern())
+					: -1;
+			this.dictionary = null;
 		}
 
-		public String getAttributeName() {
+		private Column(Column column, ValueDictionary dictionary) {
+			this.index = column.index;
+			this.name = column.name;
+			this.attributeName = column.attributeName;
+			this.roles = column.roles;
+			this.multiValueDelimiter = column.multiValueDelimiter;
+			this.multiValueDelimiterChar = column.multiValueDelimiterChar;
+			this.dictionary = dictionary;
+		}
+
+		/**
+		 * Returns a copy of the column whose values are encoded with the given dictionary.
+		 */
+		public Column withDictionary(ValueDictionary dictionary) {
+			return new Column(this, dictionary);
+		}
+
+		/**
+		 * Returns the canonical instance of the value, if the column has a dictionary.
+		 */
+		public String intern(String value) {
+			return null != dictionary ? dictionary.intern(value) : value;
+		}
+
+		private static String toAttributeName(String name) {
 			String modifiedName = name.toUpperCase().trim();
 
 			modifiedName = modifiedName.replaceAll(Pattern.quote("_"), " ");
@@ -1079,6 +3261,24 @@ public class CsvContentProvider extends AbstractContentProvider {
 			return modifiedName;
 		}
 
+		/*
+		 * Returns the character that is matched by the regular expression, if it matches a single literal character,
+		 * otherwise -1.
+		 */
+		private static int literalCharacter(String regex) {
+			if (1 == regex.length() && 0 > REGEX_META_CHARACTERS.indexOf(regex.charAt(0))) {
+				return regex.charAt(0);
+			}
+			if (2 == regex.length() && '\\' == regex.charAt(0) && !Character.isLetterOrDigit(regex.charAt(1))) {
+				return regex.charAt(1);
+			}
+			return -1;
+		}
+
+		public String getAttributeName() {
+			return attributeName;
+		}
+
 		public String getName() {
 			return name;
 		}
@@ -1088,59 +3288,62 @@ public class CsvContentProvider extends AbstractContentProvider {
 		}
 
 		public boolean isModifiedDateColumn() {
-			return modifiedDateColumn;
-		}
-
-		public void setModifiedDateColumn(boolean modifiedDateColumn) {
-			this.modifiedDateColumn = modifiedDateColumn;
+			return 0 != (roles & MODIFIED_DATE);
 		}
 
 		public boolean isKeyColumn() {
-			return keyColumn;
-		}
-
-		public void setKeyColumn(boolean keyColumn) {
-			this.keyColumn = keyColumn;
+			return 0 != (roles & KEY);
 		}
 
 		public boolean isTimestampColumn() {
-			return timestampColumn;
-		}
-
-		public void setTimestampColumn(boolean timestampColumn) {
-			this.timestampColumn = timestampColumn;
+			return 0 != (roles & TIMESTAMP);
 		}
 
 		public boolean isIdColumn() {
-			return idColumn;
-		}
-
-		public void setIdColumn(boolean idColumn) {
-			this.idColumn = idColumn;
+			return 0 != (roles & ID);
 		}
 
 		public boolean isFulltextColumn() {
-			return fulltextColumn;
-		}
-
-		public void setFulltextColumn(boolean fulltextColumn) {
-			this.fulltextColumn = fulltextColumn;
+			return 0 != (roles & FULLTEXT);
 		}
 
 		public boolean isNameColumn() {
-			return nameColumn;
+			return 0 != (roles & NAME);
 		}
 
-		public void setNameColumn(boolean nameColumn) {
-			this.nameColumn = nameColumn;
-		}
-		
-		public void setMultiValueDelimiter(Pattern multiValueDelimiter) {
-			this.multiValueDelimiter = multiValueDelimiter;
-		}
-		
 		public Pattern getMultiValueDelimiter() {
 			return multiValueDelimiter;
 		}
+
+		/**
+		 * Splits the value at the multiValue delimiter like {@link Pattern#split(CharSequence)}. Delimiters that are a
+		 * single literal character are matched without a regular expression.
+		 */
+		public String[] splitMultiValue(String value) {
+			if (0 > multiValueDelimiterChar) {
+				return multiValueDelimiter.split(value);
+			}
+
+			char delimiter = (char) multiValueDelimiterChar;
+			int next = value.indexOf(delimiter);
+			if (0 > next) {
+				return new String[] { value };
+			}
+			List<String> values = new ArrayList<String>();
+			int start = 0;
+			while (0 <= next) {
+				values.add(value.substring(start, next));
+				start = next + 1;
+				next = value.indexOf(delimiter, start);
+			}
+			values.add(value.substring(start));
+
+			// trailing empty strings are removed
+			int size = values.size();
+			while (0 < size && values.get(size - 1).isEmpty()) {
+				size--;
+			}
+			return values.subList(0, size).toArray(new String[size]);
+		}
 	}
 }
@@ -0,0 +1,184 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * The CSV files of a content provider. The location is either a single file, a directory, whose CSV files are read, or
+ * a glob pattern like <code>/data/export/*&#47;regions-*.csv</code>. A directory source contains the files with the
+ * extensions <code>.csv</code>, <code>.csv.gz</code> and <code>.zip</code>.
+ * <p>
+ * Hidden files and the sidecar files of the content provider are never part of the source.
+ */
+public class CsvFileSource {
+
+	/* The extensions of the files that are read from a directory. */
+	private static final String[] CSV_EXTENSIONS = { ".csv", ".csv.gz", ".zip" };
+
+	private static final String GLOB_CHARACTERS = "*?[{";
+
+	private final File location;
+
+	private final File baseDirectory;
+
+	private final PathMatcher matcher;
+
+	private final int maxDepth;
+
+	private CsvFileSource(File location, File baseDirectory, PathMatcher matcher, int maxDepth) {
+		this.location = location;
+		this.baseDirectory = baseDirectory;
+		this.matcher = matcher;
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Creates the source for the given location.
+	 *
+	 * @param location
+	 *            a file, a directory or a glob pattern
+	 * @return the source
+	 */
+	public static CsvFileSource create(File location) {
+		String path = location.getPath();
+		int globStart = indexOfGlobCharacter(path);
+		if (0 > globStart) {
+			return new CsvFileSource(location, location.isDirectory() ? location : null, null, 1);
+		}
+
+		// the base directory is the longest path without glob characters
+		int baseEnd = path.lastIndexOf(File.separatorChar, globStart);
+		File baseDirectory = new File(0 < baseEnd ? path.substring(0, baseEnd) : 0 == baseEnd ? File.separator : ".");
+		String pattern = path.substring(baseEnd + 1);
+
+		// glob patterns separate path elements by slashes on all platforms
+		pattern = pattern.replace(File.separatorChar, '/');
+		int maxDepth = Integer.MAX_VALUE;
+		if (!pattern.contains("**")) {
+			maxDepth = 1;
+			for (int i = 0; i < pattern.length(); i++) {
+				if ('/' == pattern.charAt(i)) {
+					maxDepth++;
+				}
+			}
+		}
+
+		// the pattern is matched against the path relative to the base directory
+		PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		return new CsvFileSource(location, baseDirectory, matcher, maxDepth);
+	}
+
+	private static int indexOfGlobCharacter(String path) {
+		for (int i = 0; i < path.length(); i++) {
+			if (0 <= GLOB_CHARACTERS.indexOf(path.charAt(i))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true, if the location is a single file.
+	 */
+	public boolean isSingleFile() {
+		return null == baseDirectory;
+	}
+
+	/**
+	 * Returns the configured location.
+	 */
+	public File getLocation() {
+		return location;
+	}
+
+	/**
+	 * Returns the directory that contains the files of a directory or glob source, or null for a single file.
+	 */
+	public File getBaseDirectory() {
+		return baseDirectory;
+	}
+
+	/**
+	 * Lists the files of the source, sorted by path. A single file is returned, even if it does not exist.
+	 *
+	 * @return the files of the source
+	 * @throws IOException
+	 *             if a directory could not be read
+	 */
+	public List<File> listFiles() throws IOException {
+		if (isSingleFile()) {
+			return Collections.singletonList(location);
+		}
+
+		final List<File> files = new ArrayList<File>();
+		if (!baseDirectory.isDirectory()) {
+			return files;
+		}
+
+		final Path basePath = baseDirectory.toPath();
+		Files.walkFileTree(basePath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+				if (attributes.isRegularFile() && isSourceFile(basePath.relativize(path))) {
+					files.add(path.toFile());
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path path, IOException e) {
+				// files that disappear or cannot be accessed are not part of the source
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * Returns true, if the file is part of the source, regardless of whether it exists.
+	 */
+	public boolean contains(File file) {
+		if (isSingleFile()) {
+			return location.getAbsoluteFile().equals(file.getAbsoluteFile());
+		}
+		Path basePath = baseDirectory.getAbsoluteFile().toPath();
+		Path path = file.getAbsoluteFile().toPath();
+		if (!path.startsWith(basePath) || path.equals(basePath)) {
+			return false;
+		}
+		Path relativePath = basePath.relativize(path);
+		return relativePath.getNameCount() <= maxDepth && isSourceFile(relativePath);
+	}
+
+	private boolean isSourceFile(Path relativePath) {
+		String name = relativePath.getFileName().toString();
+		if (name.startsWith(".") || name.endsWith(".tmp")
+				|| name.endsWith(CsvContentProvider.CSV_FINGERPRINT_STORE_SUFFIX)
+				|| name.endsWith(CsvContentProvider.CSV_RECORD_INDEX_SUFFIX)) {
+			return false;
+		}
+		if (null == matcher) {
+			String lowerCaseName = name.toLowerCase();
+			for (String extension : CSV_EXTENSIONS) {
+				if (lowerCaseName.endsWith(extension)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return matcher.matches(relativePath);
+	}
+}
@@ -0,0 +1,50 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.IOException;
+
+/**
+ * Reads the records of a CSV file one after another. The values of the current record are accessed by column index,
+ * values of columns that are not present in the current record are empty.
+ */
+public interface CsvRecordReader {
+
+	/**
+	 * Reads the first record as column headers.
+	 *
+	 * @return true, if the header line has been read
+	 */
+	boolean readHeaders() throws IOException;
+
+	/**
+	 * Sets the column headers, if the header line is not read from the input.
+	 */
+	void setHeaders(String[] headers);
+
+	String[] getHeaders() throws IOException;
+
+	int getHeaderCount();
+
+	String getHeader(int index) throws IOException;
+
+	/**
+	 * Reads the next record. Empty lines are skipped.
+	 *
+	 * @return true, if a record has been read, false at the end of the input
+	 */
+	boolean readRecord() throws IOException;
+
+	/**
+	 * Returns the value of the given column of the current record. Unquoted values are trimmed, quoted values are
+	 * unescaped.
+	 */
+	String get(int index) throws IOException;
+
+	String[] getValues() throws IOException;
+
+	/**
+	 * Returns the current record as it has been read, without the record terminator.
+	 */
+	String getRawRecord();
+
+	void close();
+}
@@ -0,0 +1,42 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import com.csvreader.CsvReader;
+
+/**
+ * The implementations of {@link CsvRecordReader} that can be selected with the init param <code>parse.reader</code>.
+ */
+public enum CsvRecordReaderType {
+
+	/**
+	 * The javacsv reader.
+	 */
+	JAVACSV {
+		@Override
+		public CsvRecordReader open(InputStream inputStream, char delimiter, Charset charset) {
+			return new JavaCsvRecordReader(new CsvReader(inputStream, delimiter, charset));
+		}
+	},
+
+	/**
+	 * The built-in tokenizer, which reads from a channel into reusable buffers.
+	 */
+	NIO {
+		@Override
+		public CsvRecordReader open(InputStream inputStream, char delimiter, Charset charset) {
+			if (inputStream instanceof FileInputStream) {
+				return new NioCsvRecordReader(((FileInputStream) inputStream).getChannel(), delimiter, charset);
+			}
+			return new NioCsvRecordReader(Channels.newChannel(inputStream), delimiter, charset);
+		}
+	};
+
+	/**
+	 * Creates a reader for the given stream. Closing the reader closes the stream.
+	 */
+	public abstract CsvRecordReader open(InputStream inputStream, char delimiter, Charset charset);
+}
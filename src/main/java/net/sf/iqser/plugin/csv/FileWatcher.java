@@ -0,0 +1,266 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Watches the directories of a CSV file source and reports changed files as soon as they are quiescent. A file is
+ * quiescent, when no event has been received for it during the quiet period and its size and modification time have
+ * not changed since the last event, so that a file which is still being written or copied is not reported. A burst of
+ * writes results in a single report.
+ * <p>
+ * The watcher thread blocks while no file is pending, so an idle watcher causes no load. If events have been lost, all
+ * files of the source are reported.
+ */
+public class FileWatcher {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(FileWatcher.class);
+
+	/**
+	 * Receives the changed files. Called by the watcher thread.
+	 */
+	public interface ChangeListener {
+
+		/**
+		 * @param files
+		 *            the changed, created or deleted files, or an empty list if all files may have changed
+		 */
+		void changed(List<File> files);
+	}
+
+	/* The state of a changed file that has not yet been reported. */
+	private static final class PendingFile {
+		private long deadline;
+		private long length;
+		private long lastModified;
+	}
+
+	private final CsvFileSource source;
+
+	private final long quietPeriod;
+
+	private final ChangeListener listener;
+
+	private final WatchService watchService;
+
+	private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+	private final Map<File, PendingFile> pendingFiles = new HashMap<File, PendingFile>();
+
+	private final Thread thread;
+
+	/**
+	 * Registers the directories of the source. The watcher thread is started by {@link #start()}.
+	 *
+	 * @param name
+	 *            the name of the watcher thread
+	 * @param source
+	 *            the CSV file source
+	 * @param quietPeriod
+	 *            the time in milliseconds without events after which a changed file is reported
+	 * @param listener
+	 *            receives the changed files
+	 * @throws IOException
+	 *             if the directories could not be watched
+	 */
+	public FileWatcher(String name, CsvFileSource source, long quietPeriod, ChangeListener listener)
+			throws IOException {
+		this.source = source;
+		this.quietPeriod = Math.max(0L, quietPeriod);
+		this.listener = listener;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		try {
+			if (source.isSingleFile()) {
+				register(source.getLocation().getAbsoluteFile().getParentFile().toPath());
+			} else {
+				registerAll(source.getBaseDirectory().getAbsoluteFile().toPath());
+			}
+		} catch (IOException e) {
+			watchService.close();
+			throw e;
+		}
+
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch();
+			}
+		}, name);
+		this.thread.setDaemon(true);
+	}
+
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Stops the watcher thread. Pending files are not reported.
+	 */
+	public void close() {
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			LOG.debug("Could not close watch service.", e);
+		}
+		thread.interrupt();
+	}
+
+	private void register(Path directory) throws IOException {
+		WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		directories.put(key, directory);
+		LOG.debug("Watching directory: " + directory);
+	}
+
+	/*
+	 * Registers the directory and its subdirectories, since a directory source may contain files in subdirectories.
+	 */
+	private void registerAll(Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+		Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+				new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes)
+							throws IOException {
+						register(path);
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path path, IOException e) {
+						return FileVisitResult.CONTINUE;
+					}
+				});
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = pendingFiles.isEmpty() ? watchService.take() : watchService.poll(
+						getTimeToNextDeadline(), TimeUnit.MILLISECONDS);
+				if (null != key) {
+					processEvents(key);
+				}
+				reportQuiescentFiles();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// the watcher has been closed
+		}
+		LOG.debug("Stopped watching CSV files.");
+	}
+
+	private long getTimeToNextDeadline() {
+		long nextDeadline = Long.MAX_VALUE;
+		for (PendingFile pendingFile : pendingFiles.values()) {
+			nextDeadline = Math.min(nextDeadline, pendingFile.deadline);
+		}
+		return Math.max(1L, nextDeadline - System.currentTimeMillis());
+	}
+
+	private void processEvents(WatchKey key) {
+		Path directory = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (StandardWatchEventKinds.OVERFLOW == event.kind()) {
+				LOG.warn("File system events have been lost, all CSV files are synchronized.");
+				pendingFiles.clear();
+				report(Collections.<File> emptyList());
+				continue;
+			}
+			if (null == directory) {
+				continue;
+			}
+
+			Path path = directory.resolve((Path) event.context());
+			if (StandardWatchEventKinds.ENTRY_CREATE == event.kind() && !source.isSingleFile()
+					&& Files.isDirectory(path)) {
+				try {
+					registerAll(path);
+				} catch (IOException e) {
+					LOG.warn("Could not watch directory: " + path, e);
+				}
+				continue;
+			}
+
+			File file = path.toFile();
+			if (source.contains(file)) {
+				PendingFile pendingFile = pendingFiles.get(file);
+				if (null == pendingFile) {
+					pendingFile = new PendingFile();
+					pendingFiles.put(file, pendingFile);
+				}
+				pendingFile.deadline = System.currentTimeMillis() + quietPeriod;
+				pendingFile.length = file.length();
+				pendingFile.lastModified = file.lastModified();
+			}
+		}
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	private void reportQuiescentFiles() {
+		long now = System.currentTimeMillis();
+		List<File> files = new ArrayList<File>();
+		for (Iterator<Entry<File, PendingFile>> entries = pendingFiles.entrySet().iterator(); entries.hasNext();) {
+			Entry<File, PendingFile> entry = entries.next();
+			PendingFile pendingFile = entry.getValue();
+			if (now < pendingFile.deadline) {
+				continue;
+			}
+
+			// a file that is still growing without events is checked again after the next quiet period
+			File file = entry.getKey();
+			if (file.length() != pendingFile.length || file.lastModified() != pendingFile.lastModified) {
+				pendingFile.deadline = now + quietPeriod;
+				pendingFile.length = file.length();
+				pendingFile.lastModified = file.lastModified();
+				continue;
+			}
+			files.add(file);
+			entries.remove();
+		}
+
+		if (!files.isEmpty()) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("CSV files have been changed: " + files);
+			}
+			report(files);
+		}
+	}
+
+	private void report(List<File> files) {
+		try {
+			listener.changed(files);
+		} catch (RuntimeException e) {
+			LOG.error("Could not synchronize changed CSV files.", e);
+		}
+	}
+}
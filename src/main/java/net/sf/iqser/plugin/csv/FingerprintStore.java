@@ -0,0 +1,195 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Persistent mapping from ContentUrls to the fingerprints of the content objects that have been submitted to the
+ * repository. The store is kept in a sidecar file next to the CSV file, so that unchanged records can be skipped
+ * without reading the repository, even after a restart. The store is thread-safe.
+ */
+public class FingerprintStore {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(FingerprintStore.class);
+
+	private static final int MAGIC = 0x43535646;
+	private static final int VERSION = 1;
+	private static final String CHARSET = "UTF-8";
+
+	private final File file;
+
+	private final Map<String, Long> fingerprints = new HashMap<String, Long>();
+
+	/* ContentUrls that have been seen during the current synchronization pass. */
+	private final Set<String> seen = new HashSet<String>();
+
+	private boolean dirty = false;
+
+	public FingerprintStore(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Loads the fingerprints from the sidecar file. If the file does not exist or is corrupted, the store starts empty.
+	 */
+	public synchronized void load() {
+		fingerprints.clear();
+		seen.clear();
+		dirty = false;
+
+		if (!file.isFile()) {
+			return;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			if (MAGIC != in.readInt() || VERSION != in.readInt()) {
+				LOG.warn("Ignoring fingerprint store with unknown format: " + file.getPath());
+				return;
+			}
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				byte[] contentUrl = new byte[in.readInt()];
+				in.readFully(contentUrl);
+				fingerprints.put(new String(contentUrl, CHARSET), in.readLong());
+			}
+			LOG.info(String.format("Loaded %d fingerprints from %s", size, file.getPath()));
+		} catch (IOException e) {
+			LOG.warn("Could not read fingerprint store, all records will be compared: " + file.getPath(), e);
+			fingerprints.clear();
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	/**
+	 * Checks whether the content object with the given ContentUrl has already been submitted with the same
+	 * fingerprint.
+	 *
+	 * @param contentUrl
+	 *            the ContentUrl
+	 * @param fingerprint
+	 *            the fingerprint of the current record
+	 * @return true, if the stored fingerprint equals the given one
+	 */
+	public synchronized boolean isUnchanged(String contentUrl, long fingerprint) {
+		Long storedFingerprint = fingerprints.get(contentUrl);
+		if (null != storedFingerprint && storedFingerprint.longValue() == fingerprint) {
+			seen.add(contentUrl);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Stores the fingerprint of a content object that is in sync with the repository.
+	 */
+	public synchronized void put(String contentUrl, long fingerprint) {
+		Long previous = fingerprints.put(contentUrl, fingerprint);
+		if (null == previous || previous.longValue() != fingerprint) {
+			dirty = true;
+		}
+		seen.add(contentUrl);
+	}
+
+	public synchronized void remove(String contentUrl) {
+		if (null != fingerprints.remove(contentUrl)) {
+			dirty = true;
+		}
+		seen.remove(contentUrl);
+	}
+
+	public synchronized int size() {
+		return fingerprints.size();
+	}
+
+	/**
+	 * Finishes a synchronization pass. If the whole CSV file has been read, the fingerprints of records that were not
+	 * seen are dropped. Changes are written to the sidecar file.
+	 *
+	 * @param complete
+	 *            true, if all records of the CSV file have been visited
+	 */
+	public synchronized void endPass(boolean complete) {
+		if (complete && fingerprints.keySet().retainAll(seen)) {
+			dirty = true;
+		}
+		seen.clear();
+		flush();
+	}
+
+	/**
+	 * Writes the fingerprints to the sidecar file, if they have been changed since they were loaded or saved.
+	 */
+	public synchronized void flush() {
+		if (dirty) {
+			save();
+		}
+	}
+
+	/**
+	 * Writes the fingerprints to a temporary file in the same directory which then replaces the sidecar file.
+	 */
+	public synchronized void save() {
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile, false)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(fingerprints.size());
+			for (Map.Entry<String, Long> entry : fingerprints.entrySet()) {
+				byte[] contentUrl = entry.getKey().getBytes(CHARSET);
+				out.writeInt(contentUrl.length);
+				out.write(contentUrl);
+				out.writeLong(entry.getValue().longValue());
+			}
+			out.close();
+			out = null;
+
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			dirty = false;
+		} catch (IOException e) {
+			LOG.error("Could not write fingerprint store: " + file.getPath(), e);
+		} finally {
+			closeQuietly(out);
+		}
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		if (null != closeable) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				LOG.debug("Could not close stream.", e);
+			}
+		}
+	}
+}
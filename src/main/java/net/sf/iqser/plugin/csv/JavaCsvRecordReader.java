@@ -0,0 +1,67 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.IOException;
+
+import com.csvreader.CsvReader;
+
+/**
+ * {@link CsvRecordReader} backed by the javacsv {@link CsvReader}.
+ */
+public class JavaCsvRecordReader implements CsvRecordReader {
+
+	private final CsvReader csvReader;
+
+	public JavaCsvRecordReader(CsvReader csvReader) {
+		this.csvReader = csvReader;
+	}
+
+	@Override
+	public boolean readHeaders() throws IOException {
+		return csvReader.readHeaders();
+	}
+
+	@Override
+	public void setHeaders(String[] headers) {
+		csvReader.setHeaders(headers);
+	}
+
+	@Override
+	public String[] getHeaders() throws IOException {
+		return csvReader.getHeaders();
+	}
+
+	@Override
+	public int getHeaderCount() {
+		return csvReader.getHeaderCount();
+	}
+
+	@Override
+	public String getHeader(int index) throws IOException {
+		return csvReader.getHeader(index);
+	}
+
+	@Override
+	public boolean readRecord() throws IOException {
+		return csvReader.readRecord();
+	}
+
+	@Override
+	public String get(int index) throws IOException {
+		return csvReader.get(index);
+	}
+
+	@Override
+	public String[] getValues() throws IOException {
+		return csvReader.getValues();
+	}
+
+	@Override
+	public String getRawRecord() {
+		return csvReader.getRawRecord();
+	}
+
+	@Override
+	public void close() {
+		csvReader.close();
+	}
+}
@@ -0,0 +1,334 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Allocation-light CSV tokenizer that reads from a channel into reusable byte and char buffers. A record is tokenized
+ * in place by remembering the start and end of every column in the char buffer; strings are only created for the
+ * columns that are actually requested.
+ * <p>
+ * The records are read the same way as by the javacsv reader with its default settings: the text qualifier is
+ * <code>"</code> and is escaped by doubling it, unquoted values are trimmed, characters between a closing quote and the
+ * next delimiter are dropped, CR, LF and CRLF terminate records and empty lines are skipped.
+ */
+public class NioCsvRecordReader implements CsvRecordReader {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(NioCsvRecordReader.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/* The minimum free space in the char buffer before decoding, a surrogate pair needs two chars. */
+	private static final int MIN_FREE_CHARS = 16;
+
+	private static final char QUOTE = '"';
+	private static final char CR = '\r';
+	private static final char LF = '\n';
+
+	private final ReadableByteChannel channel;
+	private final CharsetDecoder decoder;
+	private final char delimiter;
+
+	private final ByteBuffer byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private boolean endOfChannel = false;
+	private boolean endOfInput = false;
+
+	/* The decoded chars in [0, limit), the next record starts at position. */
+	private char[] chars = new char[BUFFER_SIZE];
+	private int limit = 0;
+	private int position = 0;
+
+	/* The current record in [recordStart, recordEnd). */
+	private int recordStart = 0;
+	private int recordEnd = 0;
+
+	/* The columns of the current record, escaped columns contain doubled quotes. */
+	private int columnCount = 0;
+	private int[] columnStarts = new int[32];
+	private int[] columnEnds = new int[32];
+	private boolean[] escaped = new boolean[32];
+	private String[] values = new String[32];
+
+	private char[] unescapeBuffer = new char[256];
+
+	private String[] headers;
+
+	public NioCsvRecordReader(ReadableByteChannel channel, char delimiter, Charset charset) {
+		this.channel = channel;
+		this.delimiter = delimiter;
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		byteBuffer.flip();
+	}
+
+	@Override
+	public boolean readHeaders() throws IOException {
+		if (!readRecord()) {
+			return false;
+		}
+		headers = getValues();
+		return true;
+	}
+
+	@Override
+	public void setHeaders(String[] headers) {
+		this.headers = headers;
+	}
+
+	@Override
+	public String[] getHeaders() {
+		return null != headers ? headers.clone() : null;
+	}
+
+	@Override
+	public int getHeaderCount() {
+		return null != headers ? headers.length : 0;
+	}
+
+	@Override
+	public String getHeader(int index) {
+		if (null != headers && 0 <= index && index < headers.length) {
+			return headers[index];
+		}
+		return "";
+	}
+
+	@Override
+	public boolean readRecord() throws IOException {
+		Arrays.fill(values, 0, columnCount, null);
+		columnCount = 0;
+
+		while (true) {
+			if (position == limit) {
+				if (endOfInput) {
+					return false;
+				}
+				recordStart = position;
+				fill();
+				continue;
+			}
+
+			// skip empty records
+			char c = chars[position];
+			if (CR == c || LF == c) {
+				position++;
+				continue;
+			}
+
+			recordStart = position;
+			if (tokenize(endOfInput)) {
+				return true;
+			}
+			// the record continues behind the end of the buffer
+			columnCount = 0;
+			fill();
+		}
+	}
+
+	@Override
+	public String get(int index) {
+		if (index < 0 || columnCount <= index) {
+			return "";
+		}
+		String value = values[index];
+		if (null == value) {
+			value = createValue(index);
+			values[index] = value;
+		}
+		return value;
+	}
+
+	@Override
+	public String[] getValues() {
+		String[] result = new String[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			result[i] = get(i);
+		}
+		return result;
+	}
+
+	@Override
+	public String getRawRecord() {
+		return new String(chars, recordStart, recordEnd - recordStart);
+	}
+
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LOG.debug("Could not close channel.", e);
+		}
+	}
+
+	/*
+	 * Tokenizes the record that starts at recordStart. Returns false, if the end of the buffer has been reached before
+	 * the end of the record. If atEnd is true, the end of the buffer terminates the record.
+	 */
+	private boolean tokenize(boolean atEnd) {
+		int i = recordStart;
+		while (true) {
+			// skip leading whitespace
+			while (i < limit && delimiter != chars[i] && (' ' == chars[i] || '\t' == chars[i])) {
+				i++;
+			}
+
+			if (i < limit && QUOTE == chars[i]) {
+				int start = ++i;
+				int end = -1;
+				boolean hasEscapedQuotes = false;
+				while (i < limit) {
+					if (QUOTE == chars[i]) {
+						if (i + 1 == limit && !atEnd) {
+							return false;
+						}
+						if (i + 1 < limit && QUOTE == chars[i + 1]) {
+							hasEscapedQuotes = true;
+							i += 2;
+							continue;
+						}
+						end = i++;
+						break;
+					}
+					i++;
+				}
+				if (end < 0) {
+					if (!atEnd) {
+						return false;
+					}
+					// the closing quote is missing
+					end = limit;
+				}
+				// characters behind the closing quote are dropped
+				while (i < limit && !isColumnEnd(chars[i])) {
+					i++;
+				}
+				addColumn(start, end, hasEscapedQuotes);
+			} else {
+				int start = i;
+				while (i < limit && !isColumnEnd(chars[i])) {
+					i++;
+				}
+				int end = i;
+				// like javacsv, only spaces are trimmed from the last value of an unterminated last record
+				while (start < end && (' ' == chars[end - 1] || ('\t' == chars[end - 1] && i < limit))) {
+					end--;
+				}
+				addColumn(start, end, false);
+			}
+
+			if (i == limit) {
+				if (!atEnd) {
+					return false;
+				}
+				recordEnd = limit;
+				position = limit;
+				return true;
+			}
+			if (delimiter == chars[i]) {
+				i++;
+			} else {
+				recordEnd = i;
+				position = i + 1;
+				return true;
+			}
+		}
+	}
+
+	private boolean isColumnEnd(char c) {
+		return delimiter == c || CR == c || LF == c;
+	}
+
+	private void addColumn(int start, int end, boolean hasEscapedQuotes) {
+		if (columnCount == columnStarts.length) {
+			int length = 2 * columnCount;
+			columnStarts = Arrays.copyOf(columnStarts, length);
+			columnEnds = Arrays.copyOf(columnEnds, length);
+			escaped = Arrays.copyOf(escaped, length);
+			values = Arrays.copyOf(values, length);
+		}
+		columnStarts[columnCount] = start;
+		columnEnds[columnCount] = end;
+		escaped[columnCount] = hasEscapedQuotes;
+		columnCount++;
+	}
+
+	private String createValue(int index) {
+		int start = columnStarts[index];
+		int length = columnEnds[index] - start;
+		if (0 == length) {
+			return "";
+		}
+		if (!escaped[index]) {
+			return new String(chars, start, length);
+		}
+
+		// unescape doubled quotes
+		if (unescapeBuffer.length < length) {
+			unescapeBuffer = new char[length];
+		}
+		int count = 0;
+		for (int i = start; i < start + length; i++) {
+			char c = chars[i];
+			unescapeBuffer[count++] = c;
+			if (QUOTE == c) {
+				i++;
+			}
+		}
+		return new String(unescapeBuffer, 0, count);
+	}
+
+	/*
+	 * Moves the current record to the beginning of the char buffer, grows the buffer if the record fills it and
+	 * decodes more input behind it.
+	 */
+	private void fill() throws IOException {
+		if (0 < recordStart) {
+			System.arraycopy(chars, recordStart, chars, 0, limit - recordStart);
+			limit -= recordStart;
+			position -= recordStart;
+			recordStart = 0;
+		}
+		if (chars.length - limit < MIN_FREE_CHARS) {
+			chars = Arrays.copyOf(chars, 2 * chars.length);
+		}
+
+		CharBuffer out = CharBuffer.wrap(chars, limit, chars.length - limit);
+		while (!endOfInput && out.position() == limit) {
+			CoderResult result = decoder.decode(byteBuffer, out, endOfChannel);
+			if (result.isError()) {
+				try {
+					result.throwException();
+				} catch (CharacterCodingException e) {
+					throw new IOException("Could not decode input", e);
+				}
+			}
+			if (result.isOverflow()) {
+				break;
+			}
+			if (endOfChannel) {
+				decoder.flush(out);
+				endOfInput = true;
+				break;
+			}
+			byteBuffer.compact();
+			int count = channel.read(byteBuffer);
+			byteBuffer.flip();
+			if (count < 0) {
+				endOfChannel = true;
+			}
+		}
+		limit = out.position();
+	}
+}
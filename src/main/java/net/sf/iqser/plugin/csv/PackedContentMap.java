@@ -0,0 +1,594 @@
+package net.sf.iqser.plugin.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.iqser.core.model.Attribute;
+import com.iqser.core.model.Content;
+
+/**
+ * Compact map from ContentUrls to content objects. The content objects are packed into direct byte buffers outside of
+ * the heap and materialized again on every access, so the heap only holds a few arrays per record, no matter how many
+ * attributes the records have. Strings are stored as UTF-8, the names of providers, types and attributes are stored
+ * once.
+ * <p>
+ * Since the values are copies, changes to a content object that has been returned by the map are not stored unless it
+ * is put again. {@link #put(String, Content)} and {@link #remove(Object)} do not return the previous content object.
+ * The map is not thread-safe.
+ */
+public class PackedContentMap extends AbstractMap<String, Content> {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private static final int REMOVED = -1;
+
+	/* The chunks of packed records; records never span chunks. */
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+	private final int chunkSize;
+
+	/* The address (chunk index and offset) and the ContentUrl hash of every record id, -1 for removed records. */
+	private long[] addresses = new long[1024];
+	private int[] hashes = new int[1024];
+	private int nextId = 0;
+
+	/* Open addressing hash table of record ids + 1, 0 marks free slots. */
+	private int[] table = new int[2048];
+	private int usedSlots = 0;
+
+	private int size = 0;
+
+	/* The bytes of removed or replaced records, which are reclaimed by compaction. */
+	private long garbage = 0L;
+	private long used = 0L;
+
+	/* The names of providers, types and attributes. */
+	private final List<String> names = new ArrayList<String>();
+	private final Map<String, Integer> nameIds = new HashMap<String, Integer>();
+
+	/* Encoding buffer. */
+	private byte[] buffer = new byte[1024];
+	private int length;
+
+	public PackedContentMap() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param chunkSize
+	 *            the size of the direct byte buffers in bytes
+	 */
+	public PackedContentMap(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof String && 0 <= find((String) key);
+	}
+
+	@Override
+	public Content get(Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		int id = find((String) key);
+		return 0 <= id ? decode(id) : null;
+	}
+
+	/**
+	 * Packs the content object. Unlike specified by {@link Map#put(Object, Object)}, null is always returned.
+	 */
+	@Override
+	public Content put(String contentUrl, Content content) {
+		if (!contentUrl.equals(content.getContentUrl())) {
+			throw new IllegalArgumentException("Key is not the ContentUrl of the content object: " + contentUrl);
+		}
+		encode(content);
+		long address = append();
+
+		int id = find(contentUrl);
+		if (0 <= id) {
+			garbage += recordLength(addresses[id]);
+			addresses[id] = address;
+		} else {
+			insert(contentUrl.hashCode(), address);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the content object. Unlike specified by {@link Map#remove(Object)}, null is always returned.
+	 */
+	@Override
+	public Content remove(Object key) {
+		if (key instanceof String) {
+			remove((String) key);
+		}
+		return null;
+	}
+
+	@Override
+	public void clear() {
+		chunks.clear();
+		Arrays.fill(table, 0);
+		usedSlots = 0;
+		nextId = 0;
+		size = 0;
+		garbage = 0L;
+		used = 0L;
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new RecordIterator<String>() {
+					@Override
+					protected String get(int id) {
+						return decodeContentUrl(id);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				return o instanceof String && PackedContentMap.this.remove((String) o);
+			}
+
+			@Override
+			public void clear() {
+				PackedContentMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<String, Content>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Content>>() {
+			@Override
+			public Iterator<Map.Entry<String, Content>> iterator() {
+				return new RecordIterator<Map.Entry<String, Content>>() {
+					@Override
+					protected Map.Entry<String, Content> get(int id) {
+						Content content = decode(id);
+						return new SimpleImmutableEntry<String, Content>(content.getContentUrl(), content);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public void clear() {
+				PackedContentMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of bytes of the direct byte buffers.
+	 */
+	public long getCapacity() {
+		long capacity = 0L;
+		for (ByteBuffer chunk : chunks) {
+			capacity += chunk.capacity();
+		}
+		return capacity;
+	}
+
+	/*
+	 * Iterates over the ids of the records that have not been removed.
+	 */
+	private abstract class RecordIterator<T> implements Iterator<T> {
+
+		private int nextId = advance(0);
+		private int lastId = -1;
+
+		private int advance(int id) {
+			while (id < PackedContentMap.this.nextId && REMOVED == addresses[id]) {
+				id++;
+			}
+			return id;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextId < PackedContentMap.this.nextId;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastId = nextId;
+			nextId = advance(nextId + 1);
+			return get(lastId);
+		}
+
+		@Override
+		public void remove() {
+			if (0 > lastId || REMOVED == addresses[lastId]) {
+				throw new IllegalStateException();
+			}
+			// removing does not move records, so the iteration can continue
+			PackedContentMap.this.remove(decodeContentUrl(lastId), false);
+		}
+
+		protected abstract T get(int id);
+	}
+
+	private boolean remove(String contentUrl) {
+		return remove(contentUrl, true);
+	}
+
+	private boolean remove(String contentUrl, boolean compact) {
+		int hash = contentUrl.hashCode();
+		byte[] key = contentUrl.getBytes(UTF_8);
+		int mask = table.length - 1;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int entry = table[slot];
+			if (0 == entry) {
+				return false;
+			}
+			if (0 < entry && hashes[entry - 1] == hash && contentUrlEquals(entry - 1, key)) {
+				int id = entry - 1;
+				table[slot] = REMOVED;
+				garbage += recordLength(addresses[id]);
+				addresses[id] = REMOVED;
+				size--;
+				if (compact && garbage > chunkSize && garbage > used / 2) {
+					compact();
+				}
+				return true;
+			}
+		}
+	}
+
+	/*
+	 * Returns the id of the record with the given ContentUrl or -1.
+	 */
+	private int find(String contentUrl) {
+		if (0 == size) {
+			return -1;
+		}
+		int hash = contentUrl.hashCode();
+		byte[] key = null;
+		int mask = table.length - 1;
+		for (int slot = mix(hash) & mask;; slot = (slot + 1) & mask) {
+			int entry = table[slot];
+			if (0 == entry) {
+				return -1;
+			}
+			if (0 < entry && hashes[entry - 1] == hash) {
+				if (null == key) {
+					key = contentUrl.getBytes(UTF_8);
+				}
+				if (contentUrlEquals(entry - 1, key)) {
+					return entry - 1;
+				}
+			}
+		}
+	}
+
+	private void insert(int hash, long address) {
+		if (nextId == addresses.length) {
+			addresses = Arrays.copyOf(addresses, 2 * nextId);
+			hashes = Arrays.copyOf(hashes, 2 * nextId);
+		}
+		int id = nextId++;
+		addresses[id] = address;
+		hashes[id] = hash;
+		size++;
+
+		if (2 * (usedSlots + 1) > table.length) {
+			rehash(2 * size > table.length / 2 ? 2 * table.length : table.length);
+		}
+		int mask = table.length - 1;
+		int slot = mix(hash) & mask;
+		while (0 != table[slot]) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = id + 1;
+		usedSlots++;
+	}
+
+	/*
+	 * Rebuilds the hash table without the slots of removed records.
+	 */
+	private void rehash(int capacity) {
+		table = new int[capacity];
+		usedSlots = 0;
+		int mask = capacity - 1;
+		for (int id = 0; id < nextId; id++) {
+			if (REMOVED != addresses[id]) {
+				int slot = mix(hashes[id]) & mask;
+				while (0 != table[slot]) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = id + 1;
+				usedSlots++;
+			}
+		}
+	}
+
+	/*
+	 * Copies the remaining records into new chunks and renumbers them.
+	 */
+	private void compact() {
+		List<ByteBuffer> oldChunks = new ArrayList<ByteBuffer>(chunks);
+		long[] oldAddresses = addresses;
+		int[] oldHashes = hashes;
+		int oldNextId = nextId;
+
+		chunks.clear();
+		addresses = new long[Math.max(1024, size)];
+		hashes = new int[addresses.length];
+		nextId = 0;
+		size = 0;
+		garbage = 0L;
+		used = 0L;
+		int capacity = 2048;
+		while (capacity < 4 * oldNextId && capacity < (1 << 30)) {
+			capacity *= 2;
+		}
+		table = new int[capacity];
+		usedSlots = 0;
+
+		for (int id = 0; id < oldNextId; id++) {
+			long address = oldAddresses[id];
+			if (REMOVED != address) {
+				ByteBuffer chunk = oldChunks.get((int) (address >>> 32));
+				int offset = (int) address;
+				length = chunk.getInt(offset);
+				ensureCapacity(length);
+				ByteBuffer source = chunk.duplicate();
+				source.position(offset + 4);
+				source.get(buffer, 0, length);
+				insert(oldHashes[id], append());
+			}
+		}
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/*
+	 * Appends the encoded record in the buffer to the last chunk and returns its address.
+	 */
+	private long append() {
+		int recordSize = 4 + length;
+		ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+		if (null == chunk || chunk.remaining() < recordSize) {
+			chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, recordSize));
+			chunks.add(chunk);
+		}
+		int offset = chunk.position();
+		chunk.putInt(length);
+		chunk.put(buffer, 0, length);
+		used += recordSize;
+		return ((long) (chunks.size() - 1) << 32) | offset;
+	}
+
+	private long recordLength(long address) {
+		return 4 + chunks.get((int) (address >>> 32)).getInt((int) address);
+	}
+
+	/*
+	 * Copies the record into a byte array.
+	 */
+	private byte[] read(int id) {
+		long address = addresses[id];
+		ByteBuffer chunk = chunks.get((int) (address >>> 32)).duplicate();
+		int offset = (int) address;
+		byte[] record = new byte[chunk.getInt(offset)];
+		chunk.position(offset + 4);
+		chunk.get(record);
+		return record;
+	}
+
+	private boolean contentUrlEquals(int id, byte[] key) {
+		long address = addresses[id];
+		ByteBuffer chunk = chunks.get((int) (address >>> 32));
+		int position = (int) address + 4;
+
+		// the ContentUrl is the first string of the record
+		int stringLength = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = chunk.get(position++);
+			stringLength |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (0 > b);
+		if (stringLength - 1 != key.length) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (chunk.get(position + i) != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String decodeContentUrl(int id) {
+		return new Decoder(read(id)).readString();
+	}
+
+	private Content decode(int id) {
+		Decoder decoder = new Decoder(read(id));
+		Content content = new Content();
+		content.setContentUrl(decoder.readString());
+		content.setProvider(decoder.readName());
+		content.setType(decoder.readName());
+		content.setModificationDate(decoder.readLong());
+		content.setFulltext(decoder.readString());
+		int attributeCount = decoder.readVarInt();
+		for (int i = 0; i < attributeCount; i++) {
+			Attribute attribute = new Attribute();
+			attribute.setName(decoder.readName());
+			attribute.setType(decoder.readVarInt());
+			attribute.setKey(1 == decoder.readVarInt());
+			int valueCount = decoder.readVarInt();
+			for (int j = 0; j < valueCount; j++) {
+				attribute.addValue(decoder.readString());
+			}
+			content.addAttribute(attribute);
+		}
+		return content;
+	}
+
+	private void encode(Content content) {
+		length = 0;
+		writeString(content.getContentUrl());
+		writeName(content.getProvider());
+		writeName(content.getType());
+		writeLong(content.getModificationDate());
+		writeString(content.getFulltext());
+		writeVarInt(content.getAttributes().size());
+		for (Attribute attribute : content.getAttributes()) {
+			writeName(attribute.getName());
+			writeVarInt(attribute.getType());
+			writeVarInt(attribute.isKey() ? 1 : 0);
+			List<String> values = attribute.getValues();
+			writeVarInt(values.size());
+			for (String value : values) {
+				writeString(value);
+			}
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (buffer.length < capacity) {
+			buffer = Arrays.copyOf(buffer, Math.max(capacity, 2 * buffer.length));
+		}
+	}
+
+	/*
+	 * Strings are stored as length + 1 and UTF-8 bytes, 0 stands for null.
+	 */
+	private void writeString(String s) {
+		if (null == s) {
+			writeVarInt(0);
+			return;
+		}
+		byte[] bytes = s.getBytes(UTF_8);
+		writeVarInt(bytes.length + 1);
+		ensureCapacity(length + bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	/*
+	 * Names are stored as id + 1, 0 stands for null.
+	 */
+	private void writeName(String name) {
+		if (null == name) {
+			writeVarInt(0);
+			return;
+		}
+		Integer id = nameIds.get(name);
+		if (null == id) {
+			id = names.size();
+			names.add(name);
+			nameIds.put(name, id);
+		}
+		writeVarInt(id + 1);
+	}
+
+	private void writeVarInt(int value) {
+		ensureCapacity(length + 5);
+		while (0 != (value & ~0x7f)) {
+			buffer[length++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeLong(long value) {
+		ensureCapacity(length + 8);
+		for (int i = 0; i < 8; i++) {
+			buffer[length++] = (byte) (value >>> (8 * i));
+		}
+	}
+
+	private class Decoder {
+
+		private final byte[] record;
+		private int position = 0;
+
+		private Decoder(byte[] record) {
+			this.record = record;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = record[position++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+			} while (0 > b);
+			return value;
+		}
+
+		private long readLong() {
+			long value = 0L;
+			for (int i = 0; i < 8; i++) {
+				value |= (record[position++] & 0xffL) << (8 * i);
+			}
+			return value;
+		}
+
+		private String readString() {
+			int stringLength = readVarInt() - 1;
+			if (0 > stringLength) {
+				return null;
+			}
+			String s = new String(record, position, stringLength, UTF_8);
+			position += stringLength;
+			return s;
+		}
+
+		private String readName() {
+			int id = readVarInt() - 1;
+			return 0 > id ? null : names.get(id);
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+
+import com.iqser.core.model.Content;
+
+/**
+ * Parses a CSV file in parallel. The file is memory mapped and split into chunks at record boundaries, which are found
+ * by a quote-aware {@link RecordScanner}, so that line breaks inside quoted fields are handled correctly. Every chunk is
+ * parsed by its own {@link CsvRecordReader} on a fork-join pool and the content objects are passed to the consumer in
+ * the order of the file.
+ */
+public class ParallelCsvParser {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(ParallelCsvParser.class);
+
+	/* The maximum size of a memory mapped region while searching record boundaries. */
+	private static final long SCAN_REGION_SIZE = 1L << 30;
+
+	/**
+	 * The maximum chunk size. A chunk is memory mapped as a whole, which is limited to Integer.MAX_VALUE bytes, and it
+	 * ends with the record that crosses the chunk size, for which 64 MB are left.
+	 */
+	public static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE - (1L << 26);
+
+	private final File file;
+	private final char delimiter;
+	private final Charset charset;
+	private final CsvRecordReaderType readerType;
+	private final int parallelism;
+	private final long chunkSize;
+
+	private String[] headers;
+	private long headerEnd = -1L;
+	private long lastRecordEnd;
+	private final List<Long> boundaries = new ArrayList<Long>();
+
+	/**
+	 * Parses the records of a chunk. Implementations must be thread-safe.
+	 */
+	public interface ChunkParser {
+		List<Content> parse(CsvRecordReader csvReader) throws IOException;
+	}
+
+	/**
+	 * Receives the content objects of the chunks in the order of the file.
+	 */
+	public interface ChunkConsumer {
+
+		/**
+		 * Returns false, if parsing should be stopped.
+		 */
+		boolean accept(List<Content> contents);
+	}
+
+	public ParallelCsvParser(File file, char delimiter, Charset charset, CsvRecordReaderType readerType,
+			int parallelism, long chunkSize) {
+		this.file = file;
+		this.delimiter = delimiter;
+		this.charset = charset;
+		this.readerType = readerType;
+		this.parallelism = parallelism;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Parses the file.
+	 *
+	 * @param chunkParser
+	 *            parses the records of a single chunk, the column headers are already set on the reader
+	 * @param consumer
+	 *            receives the content objects of every chunk
+	 * @return true, if all chunks have been parsed, false if the consumer has stopped parsing
+	 * @throws IOException
+	 *             if the file could not be read or parsed
+	 */
+	public boolean parse(final ChunkParser chunkParser, ChunkConsumer consumer) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = randomAccessFile.getChannel();
+			split(channel);
+			if (null == headers) {
+				return true;
+			}
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(String.format("Parsing %s in %d chunks with %d threads.", file.getPath(),
+						boundaries.size() - 1, parallelism));
+			}
+
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			LinkedList<Future<List<Content>>> futures = new LinkedList<Future<List<Content>>>();
+			try {
+				int nextChunk = 0;
+				while (nextChunk < boundaries.size() - 1 || !futures.isEmpty()) {
+					// keep a bounded number of chunks in flight, so that memory does not grow with the file size
+					while (nextChunk < boundaries.size() - 1 && futures.size() < 2 * parallelism) {
+						final long start = boundaries.get(nextChunk);
+						final long end = boundaries.get(nextChunk + 1);
+						futures.add(pool.submit(new Callable<List<Content>>() {
+							@Override
+							public List<Content> call() throws IOException {
+								return parseChunk(channel, start, end, chunkParser);
+							}
+						}));
+						nextChunk++;
+					}
+					if (!consumer.accept(getResult(futures.removeFirst()))) {
+						return false;
+					}
+				}
+				return true;
+			} finally {
+				for (Future<List<Content>> future : futures) {
+					future.cancel(true);
+				}
+				pool.shutdownNow();
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Returns the column headers or null, if the file is empty.
+	 */
+	public String[] getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Returns the offset directly behind the header line or -1, if the header line is not terminated.
+	 */
+	public long getHeaderEnd() {
+		return headerEnd;
+	}
+
+	/**
+	 * Returns the offset directly behind the last record terminator.
+	 */
+	public long getLastRecordEnd() {
+		return lastRecordEnd;
+	}
+
+	/*
+	 * Scans the whole file for record boundaries and splits it into chunks of about chunkSize bytes.
+	 */
+	private void split(FileChannel channel) throws IOException {
+		long size = channel.size();
+		RecordScanner scanner = new RecordScanner(delimiter, 0L);
+		long lastBoundary = 0L;
+		long previousRecordEnd = 0L;
+
+		for (long regionStart = 0L; regionStart < size; regionStart += SCAN_REGION_SIZE) {
+			ByteBuffer region = channel.map(MapMode.READ_ONLY, regionStart, Math.min(SCAN_REGION_SIZE, size - regionStart));
+			while (scanner.scanToRecordEnd(region)) {
+				long recordEnd = scanner.getLastRecordEnd();
+				boolean emptyLine = 1L == recordEnd - previousRecordEnd;
+				previousRecordEnd = recordEnd;
+				if (headerEnd < 0 && emptyLine) {
+					// empty lines before the header line are skipped by the reader, like the LF of a CRLF terminator
+					continue;
+				} else if (headerEnd < 0) {
+					headerEnd = recordEnd;
+					readHeaders(channel, headerEnd);
+					boundaries.add(headerEnd);
+					lastBoundary = headerEnd;
+				} else if (recordEnd - lastBoundary >= chunkSize) {
+					boundaries.add(recordEnd);
+					lastBoundary = recordEnd;
+				}
+			}
+		}
+
+		lastRecordEnd = scanner.getLastRecordEnd();
+		if (headerEnd < 0) {
+			// the header line is the only line of the file
+			if (0 < size) {
+				readHeaders(channel, size);
+			}
+			boundaries.clear();
+		} else if (lastBoundary < size) {
+			// the last record may not be terminated
+			boundaries.add(size);
+		}
+	}
+
+	private void readHeaders(FileChannel channel, long end) throws IOException {
+		CsvRecordReader csvReader = readerType.open(new ByteBufferInputStream(channel.map(MapMode.READ_ONLY, 0L, end)),
+				delimiter, charset);
+		try {
+			csvReader.readHeaders();
+			headers = csvReader.getHeaders();
+		} finally {
+			csvReader.close();
+		}
+	}
+
+	private List<Content> parseChunk(FileChannel channel, long start, long end, ChunkParser chunkParser)
+			throws IOException {
+		CsvRecordReader csvReader = readerType.open(new ByteBufferInputStream(channel.map(MapMode.READ_ONLY, start,
+				end - start)), delimiter, charset);
+		try {
+			csvReader.setHeaders(headers);
+			return chunkParser.parse(csvReader);
+		} finally {
+			csvReader.close();
+		}
+	}
+
+	private static List<Content> getResult(Future<List<Content>> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while parsing", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Could not parse chunk", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package net.sf.iqser.plugin.csv;
+
+/**
+ * The statistics of a synchronization phase at a point in time.
+ */
+public class PhaseStatistics {
+
+	private final long runs;
+
+	private final long rows;
+
+	private final long bytes;
+
+	private final long lastDuration;
+
+	private final long lastRows;
+
+	private final long lastBytes;
+
+	private final double rowsPerSecond;
+
+	private final double bytesPerSecond;
+
+	public PhaseStatistics(long runs, long rows, long bytes, long lastDuration, long lastRows, long lastBytes,
+			double rowsPerSecond, double bytesPerSecond) {
+		this.runs = runs;
+		this.rows = rows;
+		this.bytes = bytes;
+		this.lastDuration = lastDuration;
+		this.lastRows = lastRows;
+		this.lastBytes = lastBytes;
+		this.rowsPerSecond = rowsPerSecond;
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * Returns the number of runs of the phase.
+	 */
+	public long getRuns() {
+		return runs;
+	}
+
+	/**
+	 * Returns the number of rows of all runs.
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of bytes of all runs, which is only known for the parse phase.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the duration of the last run in milliseconds.
+	 */
+	public long getLastDuration() {
+		return lastDuration;
+	}
+
+	public long getLastRows() {
+		return lastRows;
+	}
+
+	public long getLastBytes() {
+		return lastBytes;
+	}
+
+	/**
+	 * Returns the throughput of the last runs in rows per second.
+	 */
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	/**
+	 * Returns the throughput of the last runs in bytes per second.
+	 */
+	public double getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d runs, %d rows, %d bytes, last run %d ms, %.1f rows/s, %.1f bytes/s", runs, rows,
+				bytes, lastDuration, rowsPerSecond, bytesPerSecond);
+	}
+}
@@ -0,0 +1,163 @@
+package net.sf.iqser.plugin.csv;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes the hashes of raw CSV records, from which ContentUrls are built. Hashers are thread-safe, so that records can
+ * be hashed while the CSV file is parsed in parallel.
+ * <p>
+ * Besides the message digest algorithms of the JVM, the non-cryptographic 128 bit hash {@value #MURMUR3_128} is
+ * supported, which is considerably faster.
+ */
+public abstract class RecordHasher {
+
+	/** The name of the 128 bit x64 variant of MurmurHash3 with seed 0. */
+	public static final String MURMUR3_128 = "MURMUR3-128";
+
+	/**
+	 * Returns a hasher for the given algorithm.
+	 *
+	 * @param algorithm
+	 *            {@value #MURMUR3_128} or the name of a message digest algorithm, e.g. SHA-1
+	 * @return the hasher
+	 * @throws NoSuchAlgorithmException
+	 *             if the algorithm is not available
+	 */
+	public static RecordHasher getInstance(String algorithm) throws NoSuchAlgorithmException {
+		if (MURMUR3_128.equalsIgnoreCase(algorithm)) {
+			return new Murmur3Hasher();
+		}
+		return new MessageDigestHasher(algorithm);
+	}
+
+	/**
+	 * Returns the name of the algorithm, which is used as parameter name in the ContentUrl.
+	 */
+	public abstract String getAlgorithm();
+
+	public abstract byte[] hash(byte[] input);
+
+	/*
+	 * Hashes with a message digest per thread, because message digests are not thread-safe.
+	 */
+	private static class MessageDigestHasher extends RecordHasher {
+
+		private final String algorithm;
+
+		private final ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+			@Override
+			protected MessageDigest initialValue() {
+				try {
+					return MessageDigest.getInstance(algorithm);
+				} catch (NoSuchAlgorithmException e) {
+					// the algorithm has been checked in the constructor
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+
+		private MessageDigestHasher(String algorithm) throws NoSuchAlgorithmException {
+			this.algorithm = MessageDigest.getInstance(algorithm).getAlgorithm();
+		}
+
+		@Override
+		public String getAlgorithm() {
+			return algorithm;
+		}
+
+		@Override
+		public byte[] hash(byte[] input) {
+			return digests.get().digest(input);
+		}
+	}
+
+	/*
+	 * MurmurHash3_x64_128 with seed 0. The two 64 bit halves are returned in little-endian byte order, like most
+	 * other implementations do.
+	 */
+	private static class Murmur3Hasher extends RecordHasher {
+
+		private static final long C1 = 0x87c37b91114253d5L;
+		private static final long C2 = 0x4cf5ad432745937fL;
+
+		@Override
+		public String getAlgorithm() {
+			return MURMUR3_128;
+		}
+
+		@Override
+		public byte[] hash(byte[] input) {
+			long h1 = 0L;
+			long h2 = 0L;
+			int length = input.length;
+			int blocks = length & ~15;
+
+			for (int i = 0; i < blocks; i += 16) {
+				long k1 = getLong(input, i);
+				long k2 = getLong(input, i + 8);
+
+				h1 ^= mixK1(k1);
+				h1 = Long.rotateLeft(h1, 27);
+				h1 += h2;
+				h1 = h1 * 5 + 0x52dce729;
+
+				h2 ^= mixK2(k2);
+				h2 = Long.rotateLeft(h2, 31);
+				h2 += h1;
+				h2 = h2 * 5 + 0x38495ab5;
+			}
+
+			long k1 = 0L;
+			long k2 = 0L;
+			for (int i = length - 1; i >= blocks + 8; i--) {
+				k2 = (k2 << 8) | (input[i] & 0xffL);
+			}
+			for (int i = Math.min(length, blocks + 8) - 1; i >= blocks; i--) {
+				k1 = (k1 << 8) | (input[i] & 0xffL);
+			}
+			if (length > blocks + 8) {
+				h2 ^= mixK2(k2);
+			}
+			if (length > blocks) {
+				h1 ^= mixK1(k1);
+			}
+
+			h1 ^= length;
+			h2 ^= length;
+			h1 += h2;
+			h2 += h1;
+			h1 = ContentFingerprint.mix(h1);
+			h2 = ContentFingerprint.mix(h2);
+			h1 += h2;
+			h2 += h1;
+
+			byte[] result = new byte[16];
+			putLong(result, 0, h1);
+			putLong(result, 8, h2);
+			return result;
+		}
+
+		private static long mixK1(long k1) {
+			return Long.rotateLeft(k1 * C1, 31) * C2;
+		}
+
+		private static long mixK2(long k2) {
+			return Long.rotateLeft(k2 * C2, 33) * C1;
+		}
+
+		private static long getLong(byte[] bytes, int offset) {
+			long value = 0L;
+			for (int i = offset + 7; i >= offset; i--) {
+				value = (value << 8) | (bytes[i] & 0xffL);
+			}
+			return value;
+		}
+
+		private static void putLong(byte[] bytes, int offset, long value) {
+			for (int i = 0; i < 8; i++) {
+				bytes[offset + i] = (byte) (value >>> (8 * i));
+			}
+		}
+	}
+}
@@ -0,0 +1,342 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * The byte ranges of the records of a CSV file by ContentUrl. A range starts at the first byte of a record and ends
+ * directly behind its terminator. The index is only valid as long as the file has the length and the modification
+ * time it had when the index was built or last updated.
+ * <p>
+ * The index can be stored in a sidecar file next to the CSV file, so that single records can be read without parsing
+ * the file after a restart.
+ */
+public class RecordOffsetIndex {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(RecordOffsetIndex.class);
+
+	private static final int MAGIC = 0x43535649;
+	private static final int VERSION = 1;
+	private static final String CHARSET = "UTF-8";
+
+	private final String[] headers;
+
+	private final Map<String, Integer> recordNumbers = new HashMap<String, Integer>();
+
+	/* The ranges of the records in file order. */
+	private long[] starts = new long[1024];
+	private long[] ends = new long[1024];
+	private int size = 0;
+
+	private long fileLength = -1L;
+
+	private long fileLastModified = -1L;
+
+	public RecordOffsetIndex(String[] headers) {
+		this.headers = headers;
+	}
+
+	public String[] getHeaders() {
+		return headers.clone();
+	}
+
+	/**
+	 * Returns the number of records.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the next record of the file. If several records have the same ContentUrl, the first one is kept.
+	 */
+	public void add(String contentUrl, long start, long end) {
+		if (size == starts.length) {
+			starts = Arrays.copyOf(starts, 2 * size);
+			ends = Arrays.copyOf(ends, 2 * size);
+		}
+		starts[size] = start;
+		ends[size] = end;
+		if (null != contentUrl && !recordNumbers.containsKey(contentUrl)) {
+			recordNumbers.put(contentUrl, size);
+		}
+		size++;
+	}
+
+	/**
+	 * Returns the number of the record with the given ContentUrl, or -1 if there is no such record.
+	 */
+	public int getRecordNumber(String contentUrl) {
+		Integer recordNumber = recordNumbers.get(contentUrl);
+		return null != recordNumber ? recordNumber.intValue() : -1;
+	}
+
+	public long getStart(int recordNumber) {
+		return starts[recordNumber];
+	}
+
+	public long getEnd(int recordNumber) {
+		return ends[recordNumber];
+	}
+
+	/**
+	 * Changes the lengths of the given records and moves the following records accordingly.
+	 *
+	 * @param newLengths
+	 *            the new lengths by record number
+	 */
+	public void resize(SortedMap<Integer, Long> newLengths) {
+		if (newLengths.isEmpty()) {
+			return;
+		}
+		long delta = 0L;
+		for (int i = newLengths.firstKey(); i < size; i++) {
+			long length = ends[i] - starts[i];
+			starts[i] += delta;
+			Long newLength = newLengths.get(i);
+			if (null != newLength) {
+				delta += newLength.longValue() - length;
+				length = newLength.longValue();
+			}
+			ends[i] = starts[i] + length;
+		}
+	}
+
+	/**
+	 * Remembers the state of the file that matches the index.
+	 */
+	public void setFileState(File file) {
+		fileLength = file.length();
+		fileLastModified = file.lastModified();
+	}
+
+	/**
+	 * Returns true, if the file has not been changed since the index has been built or updated.
+	 */
+	public boolean isValidFor(File file) {
+		return file.length() == fileLength && file.lastModified() == fileLastModified;
+	}
+
+	/**
+	 * Writes the index to a temporary file in the same directory which then replaces the sidecar file.
+	 *
+	 * @param indexFile
+	 *            the sidecar file
+	 * @param signature
+	 *            the settings from which the ContentUrls and the record ranges have been derived
+	 * @throws IOException
+	 *             if the index could not be written
+	 */
+	public void save(File indexFile, String signature) throws IOException {
+		File tempFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile, false)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, signature);
+			out.writeLong(fileLength);
+			out.writeLong(fileLastModified);
+			out.writeInt(headers.length);
+			for (String header : headers) {
+				writeString(out, header);
+			}
+
+			String[] contentUrls = new String[size];
+			for (Map.Entry<String, Integer> entry : recordNumbers.entrySet()) {
+				contentUrls[entry.getValue().intValue()] = entry.getKey();
+			}
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeLong(starts[i]);
+				out.writeLong(ends[i]);
+				writeString(out, contentUrls[i]);
+			}
+		} finally {
+			out.close();
+		}
+
+		try {
+			Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads the index from the sidecar file.
+	 *
+	 * @param indexFile
+	 *            the sidecar file
+	 * @param signature
+	 *            the current settings from which the ContentUrls and the record ranges are derived
+	 * @param file
+	 *            the CSV file
+	 * @return the index or null, if there is no sidecar file, if it has been written with other settings or if the CSV
+	 *         file has been changed since the index was written
+	 */
+	public static RecordOffsetIndex load(File indexFile, String signature, File file) {
+		if (!indexFile.isFile()) {
+			return null;
+		}
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			if (MAGIC != in.readInt() || VERSION != in.readInt() || !signature.equals(readString(in))) {
+				LOG.info("Ignoring record index with other format or settings: " + indexFile.getPath());
+				return null;
+			}
+			long fileLength = in.readLong();
+			long fileLastModified = in.readLong();
+			if (file.length() != fileLength || file.lastModified() != fileLastModified) {
+				LOG.info("Ignoring outdated record index: " + indexFile.getPath());
+				return null;
+			}
+
+			String[] headers = new String[in.readInt()];
+			for (int i = 0; i < headers.length; i++) {
+				headers[i] = readString(in);
+			}
+			RecordOffsetIndex index = new RecordOffsetIndex(headers);
+			int size = in.readInt();
+			index.starts = new long[Math.max(1, size)];
+			index.ends = new long[Math.max(1, size)];
+			for (int i = 0; i < size; i++) {
+				long start = in.readLong();
+				long end = in.readLong();
+				index.add(readString(in), start, end);
+			}
+			index.fileLength = fileLength;
+			index.fileLastModified = fileLastModified;
+			LOG.info(String.format("Loaded %d record offsets from %s", size, indexFile.getPath()));
+			return index;
+		} catch (IOException e) {
+			LOG.warn("Could not read record index: " + indexFile.getPath(), e);
+			return null;
+		} finally {
+			if (null != in) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					LOG.debug("Could not close stream.", e);
+				}
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (null == s) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (0 > length) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	/**
+	 * Builds the index while the CSV file is read. The scanner must see all bytes that are passed to the reader, and
+	 * every record that is returned by the reader must be added, starting with the header line.
+	 */
+	public static class Builder {
+
+		/* The scanner runs ahead of the reader, so the end of a record is known when it has been read. */
+		private final ArrayDeque<Long> recordEnds = new ArrayDeque<Long>();
+
+		private final RecordScanner scanner;
+
+		private RecordOffsetIndex index;
+
+		private long start = 0L;
+
+		public Builder(char delimiter) {
+			this.scanner = new RecordScanner(delimiter, 0L) {
+				@Override
+				protected void recordEnd(long offset) {
+					super.recordEnd(offset);
+					recordEnds.add(offset);
+				}
+			};
+		}
+
+		public RecordScanner getScanner() {
+			return scanner;
+		}
+
+		/**
+		 * Adds the header line.
+		 */
+		public void addHeaders(String[] headers) {
+			index = new RecordOffsetIndex(headers);
+			start = nextRecordEnd();
+		}
+
+		/**
+		 * Adds the record that has been read last.
+		 *
+		 * @param contentUrl
+		 *            the ContentUrl of the record or null, if the record has none
+		 */
+		public void addRecord(String contentUrl) {
+			long end = nextRecordEnd();
+			index.add(contentUrl, start, end);
+			start = end;
+		}
+
+		/*
+		 * Skips the empty lines, which are skipped by the reader as well, and returns the end of the next record. An
+		 * empty line consists of a single record terminator. The last record may be unterminated.
+		 */
+		private long nextRecordEnd() {
+			while (!recordEnds.isEmpty() && 1L == recordEnds.peek().longValue() - start) {
+				start = recordEnds.poll().longValue();
+			}
+			return recordEnds.isEmpty() ? scanner.getPosition() : recordEnds.poll().longValue();
+		}
+
+		/**
+		 * Returns the index after the whole file has been read.
+		 *
+		 * @throws IOException
+		 *             if the file has been changed while it was read
+		 */
+		public RecordOffsetIndex build(File file) throws IOException {
+			if (null == index) {
+				throw new IOException("CSV file is empty");
+			}
+			if (file.length() != scanner.getPosition()) {
+				throw new IOException("CSV file has been changed while it was read");
+			}
+			index.setFileState(file);
+			return index;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package net.sf.iqser.plugin.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Finds the byte offsets of record boundaries in a CSV byte stream without decoding it. Quoted fields are tracked the
+ * same way as by the CSV reader, so that line breaks inside quoted fields do not end a record.
+ * <p>
+ * The scanner works on the raw bytes and therefore requires a charset in which the delimiter, the quote character and
+ * the line breaks are encoded as single ASCII bytes that never occur inside multi-byte sequences (see
+ * {@link #isSupported(Charset, char)}).
+ */
+public class RecordScanner {
+
+	private static final byte QUOTE = '"';
+	private static final byte CR = '\r';
+	private static final byte LF = '\n';
+
+	private static final int FIELD_START = 0;
+	private static final int UNQUOTED = 1;
+	private static final int QUOTED = 2;
+	private static final int QUOTE_IN_QUOTED = 3;
+
+	private final byte delimiter;
+
+	private int state = FIELD_START;
+
+	private long position;
+
+	private long firstRecordEnd = -1L;
+
+	private long lastRecordEnd;
+
+	/**
+	 * Creates a scanner that starts at the beginning of a record at the given absolute offset.
+	 *
+	 * @param delimiter
+	 *            the delimiter of the CSV file
+	 * @param startOffset
+	 *            the offset of the first byte that will be scanned
+	 */
+	public RecordScanner(char delimiter, long startOffset) {
+		this.delimiter = (byte) delimiter;
+		this.position = startOffset;
+		this.lastRecordEnd = startOffset;
+	}
+
+	/**
+	 * Checks whether files with the given charset and delimiter can be scanned on byte level.
+	 *
+	 * @param charset
+	 *            the charset of the CSV file
+	 * @param delimiter
+	 *            the delimiter of the CSV file
+	 * @return true, if the scanner can be used
+	 */
+	public static boolean isSupported(Charset charset, char delimiter) {
+		String name = charset.name().toUpperCase();
+		boolean asciiCompatible = "UTF-8".equals(name) || "US-ASCII".equals(name) || name.startsWith("ISO-8859-")
+				|| name.startsWith("WINDOWS-125");
+		return asciiCompatible && delimiter < 0x80 && delimiter != '"' && delimiter != '\r' && delimiter != '\n';
+	}
+
+	/**
+	 * Scans the given bytes, which directly follow the previously scanned bytes.
+	 */
+	public void scan(byte[] bytes, int offset, int length) {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			if (scan(bytes[i])) {
+				recordEnd(position + i - offset + 1);
+			}
+		}
+		position += length;
+	}
+
+	/**
+	 * Scans the remaining bytes of the buffer up to and including the next record terminator. The buffer's position is
+	 * advanced behind the scanned bytes.
+	 *
+	 * @param buffer
+	 *            the bytes that directly follow the previously scanned bytes
+	 * @return true, if a record terminator has been found, false if the buffer has been scanned completely
+	 */
+	public boolean scanToRecordEnd(ByteBuffer buffer) {
+		while (buffer.hasRemaining()) {
+			position++;
+			if (scan(buffer.get())) {
+				recordEnd(position);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Scans a single byte and returns true, if it terminates a record. The position is not advanced.
+	 */
+	private boolean scan(byte b) {
+		switch (state) {
+		case QUOTED:
+			if (QUOTE == b) {
+				state = QUOTE_IN_QUOTED;
+			}
+			return false;
+		case QUOTE_IN_QUOTED:
+			if (QUOTE == b) {
+				// escaped quote
+				state = QUOTED;
+				return false;
+			}
+			return unquoted(b);
+		case FIELD_START:
+			if (QUOTE == b) {
+				state = QUOTED;
+				return false;
+			}
+			if (' ' == b || '\t' == b) {
+				return false;
+			}
+			return unquoted(b);
+		default:
+			return unquoted(b);
+		}
+	}
+
+	private boolean unquoted(byte b) {
+		if (delimiter == b) {
+			state = FIELD_START;
+			return false;
+		}
+		if (LF == b || CR == b) {
+			state = FIELD_START;
+			return true;
+		}
+		state = UNQUOTED;
+		return false;
+	}
+
+	/**
+	 * Called for every record terminator with the absolute offset directly behind it.
+	 */
+	protected void recordEnd(long offset) {
+		if (firstRecordEnd < 0) {
+			firstRecordEnd = offset;
+		}
+		lastRecordEnd = offset;
+	}
+
+	/**
+	 * Returns true, if the last scanned byte terminated a record or if nothing has been scanned yet.
+	 */
+	public boolean isAtRecordStart() {
+		return position == lastRecordEnd;
+	}
+
+	/**
+	 * Returns the absolute offset of the next byte to scan.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the absolute offset directly behind the first record terminator, which is the end of the header line if
+	 * scanning started at the beginning of the file, or -1 if no record has been terminated yet.
+	 */
+	public long getFirstRecordEnd() {
+		return firstRecordEnd;
+	}
+
+	/**
+	 * Returns the absolute offset directly behind the last record terminator. All bytes before this offset belong to
+	 * complete records.
+	 */
+	public long getLastRecordEnd() {
+		return lastRecordEnd;
+	}
+}
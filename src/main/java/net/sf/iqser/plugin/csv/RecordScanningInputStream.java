@@ -0,0 +1,52 @@
+package net.sf.iqser.plugin.csv;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that passes all bytes read through a {@link RecordScanner}, so that the record boundaries are known
+ * after the CSV reader has consumed the stream.
+ */
+public class RecordScanningInputStream extends FilterInputStream {
+
+	private final RecordScanner scanner;
+
+	public RecordScanningInputStream(InputStream in, RecordScanner scanner) {
+		super(in);
+		this.scanner = scanner;
+	}
+
+	public RecordScanner getScanner() {
+		return scanner;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0) {
+			scanner.scan(new byte[] { (byte) b }, 0, 1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int count = super.read(b, off, len);
+		if (count > 0) {
+			scanner.scan(b, off, count);
+		}
+		return count;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		// skipped bytes could not be scanned
+		throw new IOException("skip is not supported");
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
@@ -0,0 +1,196 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.iqser.core.exception.IQserException;
+import com.iqser.core.model.Content;
+
+/**
+ * Collects add, update and remove operations and writes them to the repository in batches. A batch is written when it
+ * has reached the batch size, when the flush interval has passed since its first operation, or when it is flushed
+ * explicitly. The operations of a batch are written one after another. The result of every operation is reported to
+ * the listener, so that a failing content object does not fail the other operations of the batch.
+ * <p>
+ * Operations on a ContentUrl that is already part of the current batch write the batch first, so that the operations
+ * on the same ContentUrl are written in order. The batch is thread-safe; batches are written outside of the lock, so
+ * several threads may write their batches at once.
+ */
+public class RepositoryBatch {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(RepositoryBatch.class);
+
+	public enum Operation {
+		ADD, UPDATE, REMOVE
+	}
+
+	/**
+	 * The repository operations.
+	 */
+	public interface Repository {
+
+		void add(Content content) throws IQserException;
+
+		void update(Content content) throws IQserException;
+
+		void remove(String contentUrl) throws IQserException;
+	}
+
+	/**
+	 * Receives the result of every operation.
+	 */
+	public interface Listener {
+
+		/**
+		 * @param content
+		 *            the content object, null for REMOVE operations
+		 */
+		void succeeded(Operation operation, String contentUrl, Content content);
+
+		void failed(Operation operation, String contentUrl, IQserException e);
+	}
+
+	private static final class Item {
+		private final Operation operation;
+		private final String contentUrl;
+		private final Content content;
+
+		private Item(Operation operation, String contentUrl, Content content) {
+			this.operation = operation;
+			this.contentUrl = contentUrl;
+			this.content = content;
+		}
+	}
+
+	private final Repository repository;
+
+	private final Listener listener;
+
+	private final int batchSize;
+
+	private final long flushInterval;
+
+	private final Object lock = new Object();
+
+	private List<Item> items = new ArrayList<Item>();
+
+	private final Set<String> pendingContentUrls = new HashSet<String>();
+
+	private long firstItemTime;
+
+	/**
+	 * @param repository
+	 *            the repository operations
+	 * @param listener
+	 *            receives the results of the operations
+	 * @param batchSize
+	 *            the maximum number of operations per batch, 1 writes every operation immediately
+	 * @param flushInterval
+	 *            the maximum time in milliseconds an operation is held back
+	 */
+	public RepositoryBatch(Repository repository, Listener listener, int batchSize, long flushInterval) {
+		this.repository = repository;
+		this.listener = listener;
+		this.batchSize = Math.max(1, batchSize);
+		this.flushInterval = flushInterval;
+	}
+
+	public void add(Content content) {
+		enqueue(new Item(Operation.ADD, content.getContentUrl(), content));
+	}
+
+	public void update(Content content) {
+		enqueue(new Item(Operation.UPDATE, content.getContentUrl(), content));
+	}
+
+	public void remove(String contentUrl) {
+		enqueue(new Item(Operation.REMOVE, contentUrl, null));
+	}
+
+	/**
+	 * Writes the current batch in the calling thread.
+	 */
+	public void flush() {
+		List<Item> batch;
+		synchronized (lock) {
+			batch = takeItems();
+		}
+		write(batch);
+	}
+
+	/**
+	 * Returns the number of operations in the current batch.
+	 */
+	public int size() {
+		synchronized (lock) {
+			return items.size();
+		}
+	}
+
+	private void enqueue(Item item) {
+		List<Item> batch = Collections.emptyList();
+		synchronized (lock) {
+			if (pendingContentUrls.contains(item.contentUrl)) {
+				batch = takeItems();
+			}
+		}
+		write(batch);
+
+		synchronized (lock) {
+			long now = System.currentTimeMillis();
+			if (items.isEmpty()) {
+				firstItemTime = now;
+			}
+			items.add(item);
+			pendingContentUrls.add(item.contentUrl);
+			batch = items.size() >= batchSize || now - firstItemTime >= flushInterval ? takeItems() : Collections
+					.<Item> emptyList();
+		}
+		write(batch);
+	}
+
+	private List<Item> takeItems() {
+		List<Item> batch = items;
+		items = new ArrayList<Item>();
+		pendingContentUrls.clear();
+		return batch;
+	}
+
+	private void write(List<Item> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(String.format("Writing batch of %d repository operations.", batch.size()));
+		}
+		for (Item item : batch) {
+			writeOne(item);
+		}
+	}
+
+	private void writeOne(Item item) {
+		try {
+			switch (item.operation) {
+			case ADD:
+				repository.add(item.content);
+				break;
+			case UPDATE:
+				repository.update(item.content);
+				break;
+			default:
+				repository.remove(item.contentUrl);
+				break;
+			}
+		} catch (IQserException e) {
+			listener.failed(item.operation, item.contentUrl, e);
+			return;
+		}
+		listener.succeeded(item.operation, item.contentUrl, item.content);
+	}
+}
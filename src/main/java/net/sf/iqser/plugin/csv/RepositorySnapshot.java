@@ -0,0 +1,68 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.iqser.core.model.Content;
+
+/**
+ * In-memory lookup of the provider's existing content objects, keyed by ContentUrl. Only a fingerprint and the
+ * modification date of every content object are kept, so that existence and modification checks do not need a round
+ * trip to the repository. The snapshot is thread-safe.
+ */
+public class RepositorySnapshot {
+
+	private final Map<String, State> states;
+
+	public RepositorySnapshot(Collection<Content> existingContents) {
+		states = new HashMap<String, State>(Math.max(16, existingContents.size() * 4 / 3 + 1));
+		for (Content content : existingContents) {
+			put(content);
+		}
+	}
+
+	public synchronized boolean contains(String contentUrl) {
+		return states.containsKey(contentUrl);
+	}
+
+	/**
+	 * Checks whether the content differs from the existing content object with the same ContentUrl.
+	 *
+	 * @param content
+	 *            the content object read from the CSV file
+	 * @param compareModificationDates
+	 *            if true, the content is modified if its modification date is newer, otherwise the fingerprints are
+	 *            compared
+	 * @return true, if the content object has been modified
+	 */
+	public synchronized boolean isModified(Content content, boolean compareModificationDates) {
+		State state = states.get(content.getContentUrl());
+		if (null == state) {
+			return true;
+		}
+		if (compareModificationDates) {
+			return content.getModificationDate() > state.modificationDate;
+		}
+		return ContentFingerprint.of(content) != state.fingerprint;
+	}
+
+	public synchronized void put(Content content) {
+		states.put(content.getContentUrl(),
+				new State(ContentFingerprint.of(content), content.getModificationDate()));
+	}
+
+	public synchronized int size() {
+		return states.size();
+	}
+
+	private static final class State {
+		private final long fingerprint;
+		private final long modificationDate;
+
+		private State(long fingerprint, long modificationDate) {
+			this.fingerprint = fingerprint;
+			this.modificationDate = modificationDate;
+		}
+	}
+}
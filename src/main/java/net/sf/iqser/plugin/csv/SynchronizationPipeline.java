@@ -0,0 +1,195 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+
+import com.iqser.core.model.Content;
+
+/**
+ * The repository stage of the synchronization. The content objects that have been read and built from the CSV files
+ * are passed through a bounded queue to a number of worker threads, which submit them to the repository. Thus reading
+ * and building the next records overlaps with waiting for the repository, and a full queue blocks the reader, so that
+ * the number of content objects in memory is bounded.
+ * <p>
+ * The workers are virtual threads, if the JVM supports them, since they mostly wait for the repository.
+ */
+public class SynchronizationPipeline {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(SynchronizationPipeline.class);
+
+	/**
+	 * Submits a content object to the repository. Implementations must be thread-safe.
+	 */
+	public interface ContentSubmitter {
+
+		void submit(Content content);
+	}
+
+	/* Marks the end of the input for one worker. */
+	private static final Content END = new Content();
+
+	private final BlockingQueue<Content> queue;
+
+	private final ContentSubmitter submitter;
+
+	private final List<Thread> workers = new ArrayList<Thread>();
+
+	private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+	private final AtomicInteger submitted = new AtomicInteger();
+
+	private final long startTime = System.currentTimeMillis();
+
+	/* The time in milliseconds the reader has been blocked by a full queue. */
+	private long blockedTime = 0L;
+
+	private boolean finished = false;
+
+	/**
+	 * Starts the workers.
+	 *
+	 * @param name
+	 *            the prefix of the names of the worker threads
+	 * @param threads
+	 *            the number of workers
+	 * @param capacity
+	 *            the maximum number of content objects that are queued
+	 * @param submitter
+	 *            submits the content objects
+	 */
+	public SynchronizationPipeline(String name, int threads, int capacity, ContentSubmitter submitter) {
+		this.queue = new ArrayBlockingQueue<Content>(Math.max(1, capacity));
+		this.submitter = submitter;
+
+		ThreadFactory threadFactory = createThreadFactory(name);
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				work();
+			}
+		};
+		for (int i = 0; i < Math.max(1, threads); i++) {
+			Thread thread = threadFactory.newThread(worker);
+			workers.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Queues a content object. Blocks while the queue is full.
+	 *
+	 * @throws InterruptedException
+	 *             if the thread has been interrupted while it was blocked
+	 * @throws RuntimeException
+	 *             if a worker has failed
+	 */
+	public void put(Content content) throws InterruptedException {
+		checkFailure();
+		if (!queue.offer(content)) {
+			long blockedSince = System.currentTimeMillis();
+			queue.put(content);
+			blockedTime += System.currentTimeMillis() - blockedSince;
+		}
+	}
+
+	/**
+	 * Waits until all queued content objects have been submitted and stops the workers.
+	 *
+	 * @throws InterruptedException
+	 *             if the thread has been interrupted while waiting
+	 * @throws RuntimeException
+	 *             if a worker has failed
+	 */
+	public void finish() throws InterruptedException {
+		for (int i = 0; i < workers.size(); i++) {
+			queue.put(END);
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		finished = true;
+		if (LOG.isDebugEnabled()) {
+			LOG.debug(String.format("Submitted %d content objects with %d workers in %d ms, reader blocked for %d ms.",
+					submitted.get(), workers.size(), System.currentTimeMillis() - startTime, blockedTime));
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Stops the workers without waiting for the queued content objects, unless the pipeline has been finished.
+	 */
+	public void abort() {
+		if (!finished) {
+			queue.clear();
+			for (Thread worker : workers) {
+				worker.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of submitted content objects.
+	 */
+	public int getSubmitted() {
+		return submitted.get();
+	}
+
+	private void checkFailure() {
+		RuntimeException e = failure.get();
+		if (null != e) {
+			throw e;
+		}
+	}
+
+	private void work() {
+		try {
+			for (Content content = queue.take(); END != content; content = queue.take()) {
+				// after a failure the queue is drained, so that the reader is not blocked
+				if (null == failure.get()) {
+					try {
+						submitter.submit(content);
+						submitted.incrementAndGet();
+					} catch (RuntimeException e) {
+						LOG.error("Could not submit content: " + content.getContentUrl(), e);
+						failure.compareAndSet(null, e);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Returns a factory of virtual threads via reflection, since they are not available before Java 21, or a factory
+	 * of daemon threads.
+	 */
+	private static ThreadFactory createThreadFactory(final String name) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (Exception e) {
+			LOG.debug("Virtual threads are not supported, platform threads are used.");
+		}
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
@@ -0,0 +1,278 @@
+package net.sf.iqser.plugin.csv;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Counters, durations and throughput of the synchronization phases of a content provider, which are exposed as an
+ * MXBean. A run of a phase is either measured at once, or its parts are added by several threads and the run is ended
+ * afterwards. The throughput is computed over the last runs of a phase.
+ * <p>
+ * The statistics are thread-safe.
+ */
+public class SynchronizationStatistics implements SynchronizationStatisticsMXBean {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(SynchronizationStatistics.class);
+
+	public static final String DOMAIN = "net.sf.iqser.plugin.csv";
+
+	/* The number of runs the throughput is computed over. */
+	private static final int THROUGHPUT_RUNS = 10;
+
+	public enum Phase {
+		PARSE, COMPARE, SUBMIT, HOUSEKEEPING, UPDATE_CSV
+	}
+
+	public enum Counter {
+		ADDED, UPDATED, SKIPPED, REMOVED, FAILED
+	}
+
+	private static final class PhaseCounter {
+		private long runs;
+		private long rows;
+		private long bytes;
+
+		/* The current run. */
+		private long runNanos;
+		private long runRows;
+		private long runBytes;
+		private boolean running;
+
+		/* The last runs, the last run at lastIndex. */
+		private final long[] lastNanos = new long[THROUGHPUT_RUNS];
+		private final long[] lastRows = new long[THROUGHPUT_RUNS];
+		private final long[] lastBytes = new long[THROUGHPUT_RUNS];
+		private int lastIndex = -1;
+
+		private synchronized void add(long nanos, long rowCount, long byteCount) {
+			runNanos += nanos;
+			runRows += rowCount;
+			runBytes += byteCount;
+			running = true;
+		}
+
+		private synchronized void endRun() {
+			if (!running) {
+				return;
+			}
+			runs++;
+			rows += runRows;
+			bytes += runBytes;
+			lastIndex = (lastIndex + 1) % THROUGHPUT_RUNS;
+			lastNanos[lastIndex] = runNanos;
+			lastRows[lastIndex] = runRows;
+			lastBytes[lastIndex] = runBytes;
+			runNanos = 0L;
+			runRows = 0L;
+			runBytes = 0L;
+			running = false;
+		}
+
+		private synchronized void reset() {
+			runs = 0L;
+			rows = 0L;
+			bytes = 0L;
+			runNanos = 0L;
+			runRows = 0L;
+			runBytes = 0L;
+			running = false;
+			Arrays.fill(lastNanos, 0L);
+			Arrays.fill(lastRows, 0L);
+			Arrays.fill(lastBytes, 0L);
+			lastIndex = -1;
+		}
+
+		private synchronized PhaseStatistics getStatistics() {
+			if (0 > lastIndex) {
+				return new PhaseStatistics(0L, 0L, 0L, 0L, 0L, 0L, 0.0, 0.0);
+			}
+			long nanos = 0L;
+			long rowCount = 0L;
+			long byteCount = 0L;
+			for (int i = 0; i < THROUGHPUT_RUNS; i++) {
+				nanos += lastNanos[i];
+				rowCount += lastRows[i];
+				byteCount += lastBytes[i];
+			}
+			double seconds = nanos / 1e9;
+			return new PhaseStatistics(runs, rows, bytes, lastNanos[lastIndex] / 1000000L, lastRows[lastIndex],
+					lastBytes[lastIndex], 0.0 < seconds ? rowCount / seconds : 0.0, 0.0 < seconds ? byteCount
+							/ seconds : 0.0);
+		}
+	}
+
+	private final Map<Phase, PhaseCounter> phases = new EnumMap<Phase, PhaseCounter>(Phase.class);
+
+	private final Map<Counter, AtomicLong> counters = new EnumMap<Counter, AtomicLong>(Counter.class);
+
+	private ObjectName objectName;
+
+	public SynchronizationStatistics() {
+		for (Phase phase : Phase.values()) {
+			phases.put(phase, new PhaseCounter());
+		}
+		for (Counter counter : Counter.values()) {
+			counters.put(counter, new AtomicLong());
+		}
+	}
+
+	/**
+	 * Adds a part of the current run of the phase.
+	 *
+	 * @param nanos
+	 *            the duration in nanoseconds
+	 * @param rows
+	 *            the number of rows
+	 * @param bytes
+	 *            the number of bytes
+	 */
+	public void add(Phase phase, long nanos, long rows, long bytes) {
+		getPhaseCounter(phase).add(nanos, rows, bytes);
+	}
+
+	/**
+	 * Ends the current run of the phase, if any parts have been added.
+	 */
+	public void endRun(Phase phase) {
+		getPhaseCounter(phase).endRun();
+	}
+
+	/**
+	 * Adds a complete run of the phase.
+	 */
+	public void run(Phase phase, long nanos, long rows, long bytes) {
+		PhaseCounter phaseCounter = getPhaseCounter(phase);
+		synchronized (phaseCounter) {
+			phaseCounter.add(nanos, rows, bytes);
+			phaseCounter.endRun();
+		}
+	}
+
+	public void increment(Counter counter) {
+		counters.get(counter).incrementAndGet();
+	}
+
+	private PhaseCounter getPhaseCounter(Phase phase) {
+		return phases.get(phase);
+	}
+
+	public PhaseStatistics getStatistics(Phase phase) {
+		return getPhaseCounter(phase).getStatistics();
+	}
+
+	public long getCount(Counter counter) {
+		return counters.get(counter).get();
+	}
+
+	@Override
+	public PhaseStatistics getParse() {
+		return getStatistics(Phase.PARSE);
+	}
+
+	@Override
+	public PhaseStatistics getCompare() {
+		return getStatistics(Phase.COMPARE);
+	}
+
+	@Override
+	public PhaseStatistics getSubmit() {
+		return getStatistics(Phase.SUBMIT);
+	}
+
+	@Override
+	public PhaseStatistics getHousekeeping() {
+		return getStatistics(Phase.HOUSEKEEPING);
+	}
+
+	@Override
+	public PhaseStatistics getUpdateCsv() {
+		return getStatistics(Phase.UPDATE_CSV);
+	}
+
+	@Override
+	public long getAddedRows() {
+		return getCount(Counter.ADDED);
+	}
+
+	@Override
+	public long getUpdatedRows() {
+		return getCount(Counter.UPDATED);
+	}
+
+	@Override
+	public long getSkippedRows() {
+		return getCount(Counter.SKIPPED);
+	}
+
+	@Override
+	public long getRemovedRows() {
+		return getCount(Counter.REMOVED);
+	}
+
+	@Override
+	public long getFailedRows() {
+		return getCount(Counter.FAILED);
+	}
+
+	@Override
+	public void reset() {
+		for (PhaseCounter phaseCounter : phases.values()) {
+			phaseCounter.reset();
+		}
+		for (AtomicLong counter : counters.values()) {
+			counter.set(0L);
+		}
+	}
+
+	/**
+	 * Registers the statistics in the platform MBean server. A previous registration of the statistics or of other
+	 * statistics with the same provider name is replaced.
+	 *
+	 * @param providerName
+	 *            the name of the content provider
+	 */
+	public synchronized void register(String providerName) {
+		unregister();
+		try {
+			ObjectName name = new ObjectName(DOMAIN + ":type=CsvContentProvider,name="
+					+ ObjectName.quote(String.valueOf(providerName)));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+			objectName = name;
+		} catch (JMException e) {
+			LOG.warn("Could not register synchronization statistics of content provider: " + providerName, e);
+		}
+	}
+
+	/**
+	 * Removes the statistics from the platform MBean server.
+	 */
+	public synchronized void unregister() {
+		if (null == objectName) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			LOG.debug("Could not unregister synchronization statistics: " + objectName, e);
+		}
+		objectName = null;
+	}
+
+	public synchronized ObjectName getObjectName() {
+		return objectName;
+	}
+}
@@ -0,0 +1,61 @@
+package net.sf.iqser.plugin.csv;
+
+/**
+ * Management interface of the synchronization statistics of a content provider. Every content provider registers its
+ * statistics in the platform MBean server under the name
+ * <code>net.sf.iqser.plugin.csv:type=CsvContentProvider,name=[provider name]</code>.
+ * <p>
+ * The phases are reported as composite data with the number of runs, the processed rows and bytes, the duration and
+ * size of the last run and the throughput over the last runs.
+ */
+public interface SynchronizationStatisticsMXBean {
+
+	/**
+	 * Parsing of the CSV files, by getContentUrls() or by a synchronization in streaming mode. In streaming mode the
+	 * duration includes the comparison and submission of the records, which are done while the file is parsed.
+	 */
+	PhaseStatistics getParse();
+
+	/**
+	 * Comparison of the records with the repository. The duration is the sum of the comparison times of a
+	 * synchronization, which may overlap if the content objects are submitted by several threads.
+	 */
+	PhaseStatistics getCompare();
+
+	/**
+	 * Submission of added and updated content objects to the repository. The duration is the sum of the repository
+	 * calls of a synchronization.
+	 */
+	PhaseStatistics getSubmit();
+
+	/**
+	 * Housekeeping, the rows are the existing content objects that have been checked.
+	 */
+	PhaseStatistics getHousekeeping();
+
+	/**
+	 * Writing of updated content objects to the CSV files.
+	 */
+	PhaseStatistics getUpdateCsv();
+
+	long getAddedRows();
+
+	long getUpdatedRows();
+
+	/**
+	 * Returns the number of records that have not been submitted, since they are unchanged.
+	 */
+	long getSkippedRows();
+
+	long getRemovedRows();
+
+	/**
+	 * Returns the number of repository operations that have failed.
+	 */
+	long getFailedRows();
+
+	/**
+	 * Resets all counters.
+	 */
+	void reset();
+}
@@ -12,8 +12,8 @@ public class UpdateActionRunner implements ActionRunner {
 	public void run(Collection<Parameter> parameters, Content content, ContentProvider provider) {
 
 		if (null != provider && provider instanceof CsvContentProvider) {
-			// ... just call the updateCsv-method of the contentProvider
-			((CsvContentProvider) provider).updateCsv(content);
+			// ... just queue the update, the contentProvider writes it in the background
+			((CsvContentProvider) provider).enqueueUpdate(content);
 		}
 	}
 }
@@ -0,0 +1,153 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.iqser.core.model.Content;
+
+/**
+ * Write-behind queue for updated content objects. Updates are queued and a background thread writes them after a
+ * delay, so that a burst of updates results in a single write. Queued updates of the same ContentUrl are coalesced, only
+ * the latest content object is written.
+ */
+public class UpdateQueue {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(UpdateQueue.class);
+
+	/**
+	 * Writes a batch of updated content objects.
+	 */
+	public interface UpdateWriter {
+
+		void write(Collection<Content> contents);
+	}
+
+	private final UpdateWriter writer;
+
+	private final long delay;
+
+	private final ScheduledExecutorService executor;
+
+	/* Held while the updates are written, it is always acquired before the write lock. */
+	private final Object lock;
+
+	/* The queued content objects by ContentUrl in the order of their first update. */
+	private final Map<String, Content> pendingContents = new LinkedHashMap<String, Content>();
+
+	/* Writes are serialized, so that the updates are written in the order in which they have been queued. */
+	private final Object writeLock = new Object();
+
+	private boolean scheduled = false;
+
+	private boolean closed = false;
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			try {
+				flush();
+			} catch (RuntimeException e) {
+				LOG.error("Could not write queued updates.", e);
+			}
+		}
+	};
+
+	/**
+	 * @param name
+	 *            the name of the writer thread
+	 * @param delay
+	 *            the time in milliseconds between the first queued update and the write
+	 * @param lock
+	 *            the lock that is held while the updates are written, so that the writer thread excludes other users
+	 *            of the written data; a thread that holds the lock may flush the queue
+	 * @param writer
+	 *            the writer of the updates
+	 */
+	public UpdateQueue(final String name, long delay, Object lock, UpdateWriter writer) {
+		this.writer = writer;
+		this.delay = Math.max(0L, delay);
+		this.lock = lock;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Queues the updated content object and returns immediately.
+	 *
+	 * @param content
+	 *            the updated content object
+	 * @return true, if the update has been queued, false if the queue has been closed
+	 */
+	public boolean enqueue(Content content) {
+		synchronized (pendingContents) {
+			if (closed) {
+				return false;
+			}
+			pendingContents.put(content.getContentUrl(), content);
+			if (!scheduled) {
+				scheduled = true;
+				executor.schedule(flushTask, delay, TimeUnit.MILLISECONDS);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the number of queued content objects.
+	 */
+	public int size() {
+		synchronized (pendingContents) {
+			return pendingContents.size();
+		}
+	}
+
+	/**
+	 * Writes the queued updates in the calling thread.
+	 */
+	public void flush() {
+		synchronized (lock) {
+			synchronized (writeLock) {
+				List<Content> contents;
+				synchronized (pendingContents) {
+					scheduled = false;
+					if (pendingContents.isEmpty()) {
+						return;
+					}
+					contents = new ArrayList<Content>(pendingContents.values());
+					pendingContents.clear();
+				}
+				if (LOG.isDebugEnabled()) {
+					LOG.debug(String.format("Writing %d queued updates.", contents.size()));
+				}
+				writer.write(contents);
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer thread and writes the queued updates.
+	 */
+	public void close() {
+		synchronized (pendingContents) {
+			closed = true;
+		}
+		executor.shutdownNow();
+		flush();
+	}
+}
@@ -0,0 +1,120 @@
+package net.sf.iqser.plugin.csv;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Dictionary of the values of a column, which is built while the CSV file is parsed. Equal values share one canonical
+ * String instance, so that the content objects of a column with few distinct values hold only a few strings. When the
+ * number of distinct values exceeds the cardinality cutoff, the column is considered unsuited, the dictionary is dropped
+ * and values are passed through unchanged.
+ * <p>
+ * The dictionary is thread-safe.
+ */
+public class ValueDictionary {
+
+	/** The logger. */
+	private static Logger LOG = Logger.getLogger(ValueDictionary.class);
+
+	private final String name;
+
+	private final int maxSize;
+
+	private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+
+	private volatile boolean open;
+
+	/* Lookups and hits while the dictionary is open. */
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+
+	/**
+	 * @param name
+	 *            the name of the column
+	 * @param maxSize
+	 *            the cardinality cutoff, the maximum number of distinct values
+	 */
+	public ValueDictionary(String name, int maxSize) {
+		this.name = name;
+		this.maxSize = maxSize;
+		this.open = 0 < maxSize;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the canonical instance of the value.
+	 */
+	public String intern(String value) {
+		if (!open) {
+			return value;
+		}
+		lookups.incrementAndGet();
+		String canonicalValue = values.get(value);
+		if (null == canonicalValue) {
+			if (values.size() >= maxSize) {
+				close();
+				return value;
+			}
+			canonicalValue = values.putIfAbsent(value, value);
+			if (null == canonicalValue) {
+				return value;
+			}
+		}
+		hits.incrementAndGet();
+		return canonicalValue;
+	}
+
+	private synchronized void close() {
+		if (open) {
+			open = false;
+			values.clear();
+			LOG.debug(String.format("Column %s has more than %d distinct values and is no longer encoded.", name,
+					maxSize));
+		}
+	}
+
+	/**
+	 * Returns false, if the column has exceeded the cardinality cutoff.
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Returns the number of distinct values.
+	 */
+	public int size() {
+		return values.size();
+	}
+
+	public long getLookups() {
+		return lookups.get();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the share of the lookups that returned a canonical instance, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long lookupCount = lookups.get();
+		return 0L < lookupCount ? (double) hits.get() / lookupCount : 0.0;
+	}
+
+	@Override
+	public String toString() {
+		if (!open) {
+			return String.format("%s: more than %d distinct values, not encoded", name, maxSize);
+		}
+		return String.format("%s: %d distinct values, hit rate %.1f%% of %d values", name, size(),
+				100.0 * getHitRate(), getLookups());
+	}
+}
@@ -1,7 +1,10 @@
 package net.sf.iqser.plugin.csv;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -10,15 +13,39 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
 import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import net.sf.iqser.plugin.csv.test.CsvGenerator;
 import net.sf.iqser.plugin.csv.test.MockContentProviderFacade;
+import net.sf.iqser.plugin.csv.test.SyncLoadHarness;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PropertyConfigurator;
+import org.apache.log4j.spi.LoggingEvent;
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Before;
@@ -113,6 +140,94 @@ public class CsvContentProviderTest extends ContentProviderTestCase {
 		}
 	}
 
+	@Test
+	public void testDoSynchronizationWithSyncThreads() throws IQserException {
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCTHREADS, "4");
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCWINDOW, "2");
+		provider.init();
+		provider.doSynchronization();
+
+		ContentProviderFacade cpf = ServiceLocatorFactory.getServiceLocator().getContentProviderFacade();
+		assertEquals(37, cpf.getExistingContents("net.sf.iqser.plugin.csv").size());
+
+		// streaming synchronization of the modified file updates the changed records
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+		provider.getInitParams().setProperty("file",
+				getClass().getClassLoader().getResource("artcollection-modified.csv").toString());
+		provider.init();
+		provider.doSynchronization();
+
+		Collection<Content> contents = cpf.getExistingContents("net.sf.iqser.plugin.csv");
+		assertEquals(37, contents.size());
+		for (Content content : contents) {
+			assertTrue(CsvContentProvider.equalIgnoringModificationDate(content,
+					provider.createContent(content.getContentUrl()))
+					|| null == provider.createContent(content.getContentUrl()));
+		}
+	}
+
+	@Test
+	public void testRepositoryBatch() {
+		final List<String> calls = new ArrayList<String>();
+		final List<String> failures = new ArrayList<String>();
+		RepositoryBatch batch = new RepositoryBatch(new RepositoryBatch.Repository() {
+			@Override
+			public void add(Content content) throws IQserException {
+				if ("2".equals(content.getContentUrl())) {
+					throw new IQserException("bad record");
+				}
+				calls.add("add " + content.getContentUrl());
+			}
+
+			@Override
+			public void update(Content content) throws IQserException {
+				calls.add("update " + content.getContentUrl());
+			}
+
+			@Override
+			public void remove(String contentUrl) throws IQserException {
+				calls.add("remove " + contentUrl);
+			}
+		}, new RepositoryBatch.Listener() {
+			@Override
+			public void succeeded(RepositoryBatch.Operation operation, String contentUrl, Content content) {
+			}
+
+			@Override
+			public void failed(RepositoryBatch.Operation operation, String contentUrl, IQserException e) {
+				failures.add(operation + " " + contentUrl);
+			}
+		}, 4, 60000L);
+
+		for (int i = 1; i <= 3; i++) {
+			Content content = new Content();
+			content.setContentUrl(String.valueOf(i));
+			batch.add(content);
+		}
+		assertTrue(calls.isEmpty());
+		Content content = new Content();
+		content.setContentUrl("4");
+		batch.update(content);
+		// the batch is written when it is full, a failing operation does not fail the others
+		assertEquals(Arrays.asList("add 1", "add 3", "update 4"), calls);
+		assertEquals(Arrays.asList("ADD 2"), failures);
+
+		calls.clear();
+		batch.update(content);
+		content = new Content();
+		content.setContentUrl("5");
+		batch.update(content);
+		batch.remove("6");
+		batch.remove("7");
+		// removing a pending ContentUrl writes the batch first
+		batch.remove("5");
+		assertEquals(Arrays.asList("update 4", "update 5", "remove 6", "remove 7"), calls);
+		assertEquals(1, batch.size());
+		batch.flush();
+		assertEquals("remove 5", calls.get(calls.size() - 1));
+		assertEquals(0, batch.size());
+	}
+
 	@Test
 	public void testDoHousekeeping() throws IQserException {
 
@@ -139,6 +254,181 @@ public class CsvContentProviderTest extends ContentProviderTestCase {
 		}
 	}
 
+	@Test
+	public void testDoHousekeepingInStreamingMode() throws IQserException {
+		provider.doSynchronization();
+
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+		provider.getInitParams().setProperty("file",
+				getClass().getClassLoader().getResource("artcollection-modified.csv").toString());
+		provider.init();
+
+		provider.doHousekeeping();
+
+		ContentProviderFacade cpf = ServiceLocatorFactory.getServiceLocator().getContentProviderFacade();
+		assertEquals(35, cpf.getExistingContents("net.sf.iqser.plugin.csv").size());
+	}
+
+	@Test
+	public void testDoHousekeepingInStreamingModeReusesContentUrlFilter() throws Exception {
+		provider.doSynchronization();
+
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		copyFileUsingStream(new File(getClass().getClassLoader().getResource("artcollection-modified.csv").toURI()),
+				tempCsvFile);
+		try {
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.init();
+			provider.doSynchronization();
+			long parseRuns = provider.getStatistics().getParse().getRuns();
+
+			// the Bloom filter of the synchronization is used, the file is not parsed again
+			provider.doHousekeeping();
+			ContentProviderFacade cpf = ServiceLocatorFactory.getServiceLocator().getContentProviderFacade();
+			assertEquals(35, cpf.getExistingContents("net.sf.iqser.plugin.csv").size());
+			assertEquals(parseRuns, provider.getStatistics().getParse().getRuns());
+
+			// a changed file is parsed again
+			OutputStream os = new FileOutputStream(tempCsvFile, true);
+			try {
+				os.write("\n".getBytes("UTF-8"));
+			} finally {
+				os.close();
+			}
+			provider.doHousekeeping();
+			assertEquals(35, cpf.getExistingContents("net.sf.iqser.plugin.csv").size());
+			assertEquals(parseRuns + 1, provider.getStatistics().getParse().getRuns());
+		} finally {
+			provider.destroy();
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testSynchronizationStatistics() throws Exception {
+		provider.doSynchronization();
+		provider.doHousekeeping();
+
+		SynchronizationStatistics statistics = provider.getStatistics();
+		assertEquals(37, statistics.getParse().getRows());
+		assertTrue(0 < statistics.getParse().getBytes());
+		assertEquals(37, statistics.getCompare().getLastRows());
+		assertEquals(37, statistics.getAddedRows());
+		assertEquals(0, statistics.getUpdatedRows());
+		assertEquals(1, statistics.getHousekeeping().getRuns());
+		assertEquals(37, statistics.getHousekeeping().getLastRows());
+
+		// the statistics are registered as an MBean per provider
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = statistics.getObjectName();
+		assertNotNull(objectName);
+		assertEquals(Long.valueOf(37), server.getAttribute(objectName, "AddedRows"));
+		CompositeData parse = (CompositeData) server.getAttribute(objectName, "Parse");
+		assertEquals(Long.valueOf(37), parse.get("rows"));
+
+		provider.destroy();
+		assertFalse(server.isRegistered(objectName));
+	}
+
+	@Test
+	public void testSyncLoadHarness() throws Exception {
+		Properties initParams = new Properties();
+		initParams.setProperty(CsvContentProvider.CSV_PROPERTY_SYNCTHREADS, "4");
+		SyncLoadHarness.Report report = new SyncLoadHarness(new CsvGenerator(2000).withColumns(6)).withCycles(5)
+				.withMutationRate(0.05).withLatency(1000L).withInitParams(initParams).run();
+		LOGGER.info(report);
+
+		// the harness fails, if the repository does not match the file after the last cycle
+		assertEquals(5, report.getCycles());
+		assertTrue(0 < report.getRows());
+		assertTrue(report.getP50() <= report.getP99());
+		assertTrue(0.0 < report.getRowsPerSecond());
+		assertTrue(0L < report.getPeakHeapUsage());
+		assertTrue(0L < report.getRepositoryCalls());
+	}
+
+	@Test
+	public void testEqualIgnoringModificationDate() {
+		Content content = createContent(1L, new Attribute("NAME", "Hardy", Attribute.ATTRIBUTE_TYPE_TEXT, true),
+				createAttribute("TAGS", "oil", "etching"), new Attribute("YEAR", "1901",
+						Attribute.ATTRIBUTE_TYPE_TEXT, false));
+		assertTrue(CsvContentProvider.equalIgnoringModificationDate(content, createContent(2L, new Attribute("NAME",
+				"Hardy", Attribute.ATTRIBUTE_TYPE_TEXT, true), createAttribute("TAGS", "oil", "etching"),
+				new Attribute("YEAR", "1901", Attribute.ATTRIBUTE_TYPE_TEXT, false))));
+
+		// the order of the attributes does not matter, but the order of the values
+		assertTrue(CsvContentProvider.equalIgnoringModificationDate(content, createContent(2L, new Attribute("YEAR",
+				"1901", Attribute.ATTRIBUTE_TYPE_TEXT, false), new Attribute("NAME", "Hardy",
+				Attribute.ATTRIBUTE_TYPE_TEXT, true), createAttribute("TAGS", "oil", "etching"))));
+		assertFalse(CsvContentProvider.equalIgnoringModificationDate(content, createContent(2L, new Attribute("YEAR",
+				"1901", Attribute.ATTRIBUTE_TYPE_TEXT, false), new Attribute("NAME", "Hardy",
+				Attribute.ATTRIBUTE_TYPE_TEXT, true), createAttribute("TAGS", "etching", "oil"))));
+		assertFalse(CsvContentProvider.equalIgnoringModificationDate(content, createContent(2L, new Attribute("YEAR",
+				"1901", Attribute.ATTRIBUTE_TYPE_TEXT, false), new Attribute("NAME", "Hardy",
+				Attribute.ATTRIBUTE_TYPE_TEXT, true), createAttribute("TAGS", "oil"))));
+		assertFalse(CsvContentProvider.equalIgnoringModificationDate(content, createContent(2L, new Attribute("YEAR",
+				"1901", Attribute.ATTRIBUTE_TYPE_TEXT, false), new Attribute("NAME", "Hardy",
+				Attribute.ATTRIBUTE_TYPE_TEXT, false), createAttribute("TAGS", "oil", "etching"))));
+		assertFalse(CsvContentProvider.equalIgnoringModificationDate(content, createContent(2L, new Attribute("NAME",
+				"Hardy", Attribute.ATTRIBUTE_TYPE_TEXT, true), createAttribute("TAGS", "oil", "etching"))));
+
+		// attributes with the same name are compared with each of them
+		Content duplicates = createContent(1L, new Attribute("NAME", "Hardy", Attribute.ATTRIBUTE_TYPE_TEXT, true),
+				new Attribute("NAME", "Pennell", Attribute.ATTRIBUTE_TYPE_TEXT, true));
+		assertTrue(CsvContentProvider.equalIgnoringModificationDate(duplicates, createContent(2L, new Attribute(
+				"NAME", "Pennell", Attribute.ATTRIBUTE_TYPE_TEXT, true), new Attribute("NAME", "Hardy",
+				Attribute.ATTRIBUTE_TYPE_TEXT, true))));
+		assertFalse(CsvContentProvider.equalIgnoringModificationDate(duplicates, createContent(2L, new Attribute(
+				"NAME", "Pennell", Attribute.ATTRIBUTE_TYPE_TEXT, true), new Attribute("NAME", "McLean",
+				Attribute.ATTRIBUTE_TYPE_TEXT, true))));
+
+		Content otherFulltext = createContent(2L, new Attribute("NAME", "Hardy", Attribute.ATTRIBUTE_TYPE_TEXT, true),
+				new Attribute("NAME", "Pennell", Attribute.ATTRIBUTE_TYPE_TEXT, true));
+		otherFulltext.setFulltext("Pennell");
+		assertFalse(CsvContentProvider.equalIgnoringModificationDate(duplicates, otherFulltext));
+	}
+
+	private Content createContent(long modificationDate, Attribute... attributes) {
+		Content content = new Content();
+		content.setContentUrl("csv://1");
+		content.setProvider("CSV-CP");
+		content.setType("Test");
+		content.setFulltext("Hardy");
+		content.setModificationDate(modificationDate);
+		for (Attribute attribute : attributes) {
+			content.addAttribute(attribute);
+		}
+		return content;
+	}
+
+	private Attribute createAttribute(String name, String... values) {
+		Attribute attribute = new Attribute();
+		attribute.setName(name);
+		attribute.setType(Attribute.ATTRIBUTE_TYPE_TEXT);
+		for (String value : values) {
+			attribute.addValue(value);
+		}
+		return attribute;
+	}
+
+	@Test
+	public void testContentUrlFilter() {
+		ContentUrlFilter filter = new ContentUrlFilter(10000, 0.01, 42L);
+		for (int i = 0; i < 10000; i++) {
+			filter.add("csv://" + i);
+		}
+		assertEquals(10000, filter.size());
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(filter.mightContain("csv://" + i));
+			if (filter.mightContain("csv://removed/" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 200);
+	}
+
 	@Test
 	public void testGetContentString() {
 		Content c = provider.createContent("3");
@@ -160,6 +450,468 @@ public class CsvContentProviderTest extends ContentProviderTestCase {
 		assertEquals(s, new String(provider.getBinaryData(c)));
 	}
 
+	@Test
+	public void testDoSynchronizationInStreamingMode() throws IQserException {
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCWINDOW, "5");
+		provider.init();
+
+		prepare();
+		provider.doSynchronization();
+		verify();
+
+		Assert.assertTrue(provider.getContentMap().isEmpty());
+
+		ContentProviderFacade contentProviderFacade = ServiceLocatorFactory.getServiceLocator()
+				.getContentProviderFacade();
+		assertEquals(37, contentProviderFacade.getExistingContents("net.sf.iqser.plugin.csv").size());
+
+		Content c = contentProviderFacade.getExistingContent(provider.getName(), "1");
+		assertEquals(8, c.getAttributes().size());
+		assertEquals("Irises", c.getAttributeByName("TITLE").getValue());
+	}
+
+	@Test
+	public void testGetContentUrlsInStreamingMode() {
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+		provider.init();
+
+		assertEquals(37, provider.getContentUrls().size());
+		Assert.assertTrue(provider.getContentMap().isEmpty());
+
+		Content c = provider.createContent("3");
+		assertEquals("Alfred Mandeville", c.getAttributeByName("ARTIST").getValue());
+
+		// the unchanged file is only parsed again up to a record it contains
+		long parseRuns = provider.getStatistics().getParse().getRuns();
+		assertEquals(37, provider.getContentUrls().size());
+		assertNull(provider.createContent("unknown"));
+		assertEquals(parseRuns, provider.getStatistics().getParse().getRuns());
+		assertNotNull(provider.createContent("5"));
+		assertEquals(parseRuns + 1, provider.getStatistics().getParse().getRuns());
+	}
+
+	@Test
+	public void testGetContentUrlsInStreamingModeReadsChangedFile() throws IOException, URISyntaxException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+			provider.init();
+			assertNull(provider.createContent("38"));
+			assertEquals(37, provider.getContentUrls().size());
+
+			OutputStream os = new FileOutputStream(tempCsvFile, true);
+			try {
+				os.write("\n38;Unknown;Still Life;oil;50;40;90,00;60,00\n".getBytes("UTF-8"));
+			} finally {
+				os.close();
+			}
+			assertEquals("Still Life", provider.createContent("38").getAttributeByName("TITLE").getValue());
+			assertEquals(38, provider.getContentUrls().size());
+		} finally {
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testDoSynchronizationWithPrefetchedRepository() throws IQserException {
+		prepare();
+		provider.doSynchronization();
+
+		provider.getInitParams().setProperty("file",
+				getClass().getClassLoader().getResource("artcollection-modified.csv").toString());
+		provider.init();
+		provider.doSynchronization();
+		verify();
+
+		ContentProviderFacade contentProviderFacade = ServiceLocatorFactory.getServiceLocator()
+				.getContentProviderFacade();
+		assertEquals(37, contentProviderFacade.getExistingContents("net.sf.iqser.plugin.csv").size());
+		assertEquals("1,00", contentProviderFacade.getExistingContent(provider.getName(), "35")
+				.getAttributeByName("RESERVE").getValue());
+	}
+
+	@Test
+	public void testDoSynchronizationSkipsRecordsWithUnchangedFingerprint() throws IOException, URISyntaxException,
+			IQserException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		File fingerprintFile = new File(tempCsvFile.getPath() + CsvContentProvider.CSV_FINGERPRINT_STORE_SUFFIX);
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCFINGERPRINTS, "true");
+			provider.init();
+
+			prepare();
+			provider.doSynchronization();
+			verify();
+			Assert.assertTrue(fingerprintFile.isFile());
+
+			// simulate a restart with an empty repository: no record must be submitted again
+			ServiceLocatorFactory.getServiceLocator().setContentProviderFacade(new MockContentProviderFacade());
+			CsvContentProvider.clearCache();
+			provider = initializeProviderUnderTest(provider.getInitParams());
+			provider.doSynchronization();
+
+			ContentProviderFacade contentProviderFacade = ServiceLocatorFactory.getServiceLocator()
+					.getContentProviderFacade();
+			assertEquals(0, contentProviderFacade.getExistingContents("net.sf.iqser.plugin.csv").size());
+		} finally {
+			tempCsvFile.delete();
+			fingerprintFile.delete();
+		}
+	}
+
+	@Test
+	public void testDoSynchronizationInAppendMode() throws IOException, URISyntaxException, IQserException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_APPENDMODE, "true");
+			provider.init();
+
+			prepare();
+			provider.doSynchronization();
+			verify();
+
+			// only the appended record and the unterminated last record are read again
+			MockContentProviderFacade contentProviderFacade = new MockContentProviderFacade();
+			ServiceLocatorFactory.getServiceLocator().setContentProviderFacade(contentProviderFacade);
+			OutputStream os = new FileOutputStream(tempCsvFile, true);
+			try {
+				os.write("\n38;Unknown;Still Life;oil;50;40;90,00;60,00\n".getBytes("UTF-8"));
+			} finally {
+				os.close();
+			}
+			tempCsvFile.setLastModified(tempCsvFile.lastModified() + 2000);
+			provider.doSynchronization();
+
+			assertEquals(2, contentProviderFacade.getExistingContents("net.sf.iqser.plugin.csv").size());
+			assertNotNull(contentProviderFacade.getExistingContent(provider.getName(), "37"));
+			assertNotNull(contentProviderFacade.getExistingContent(provider.getName(), "38"));
+
+			// a rewritten file is read completely
+			contentProviderFacade = new MockContentProviderFacade();
+			ServiceLocatorFactory.getServiceLocator().setContentProviderFacade(contentProviderFacade);
+			long lastModified = tempCsvFile.lastModified();
+			copyFileUsingStream(new File(getClass().getClassLoader().getResource("artcollection-modified.csv")
+					.toURI()), tempCsvFile);
+			tempCsvFile.setLastModified(lastModified + 2000);
+			provider.doSynchronization();
+
+			assertEquals(35, contentProviderFacade.getExistingContents("net.sf.iqser.plugin.csv").size());
+		} finally {
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testGetContentUrlsReadsOnlyChangedBlocks() throws IOException, URISyntaxException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCBLOCKS, "true");
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCBLOCKSIZE, "256");
+			provider.init();
+
+			assertEquals(37, provider.getContentUrls().size());
+			Content unchangedContent = provider.createContent("30");
+
+			// record 3 is changed and record 5 is deleted
+			String csv = new String(Files.readAllBytes(tempCsvFile.toPath()), "UTF-8");
+			csv = csv.replace("Tete Bleue", "Tete Rouge").replaceFirst("\n5;[^\n]*", "");
+			long lastModified = tempCsvFile.lastModified();
+			Files.write(tempCsvFile.toPath(), csv.getBytes("UTF-8"));
+			tempCsvFile.setLastModified(lastModified + 2000);
+
+			Collection<String> contentUrls = provider.getContentUrls();
+			assertEquals(36, contentUrls.size());
+			assertFalse(contentUrls.contains("5"));
+			assertEquals("Tete Rouge", provider.createContent("3").getAttributeByName("TITLE").getValue());
+			assertSame(unchangedContent, provider.createContent("30"));
+		} finally {
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testFileWatcherSynchronizesChangedFile() throws IOException, URISyntaxException, InterruptedException,
+			IQserException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_WATCH, "true");
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_WATCHQUIETPERIOD, "100");
+			provider.init();
+			provider.doSynchronization();
+
+			ContentProviderFacade contentProviderFacade = ServiceLocatorFactory.getServiceLocator()
+					.getContentProviderFacade();
+			assertEquals(37, contentProviderFacade.getExistingContents("net.sf.iqser.plugin.csv").size());
+
+			// the appended record is synchronized without calling the provider, even if the file is changed within the
+			// resolution of its modification timestamp
+			long lastModified = tempCsvFile.lastModified();
+			OutputStream os = new FileOutputStream(tempCsvFile, true);
+			try {
+				os.write("\n38;Unknown;Still Life;oil;50;40;90,00;60,00\n".getBytes("UTF-8"));
+			} finally {
+				os.close();
+			}
+			tempCsvFile.setLastModified(lastModified);
+			for (int i = 0; i < 100 && !contentProviderFacade.isExistingContent(provider.getName(), "38"); i++) {
+				Thread.sleep(100);
+			}
+			assertTrue(contentProviderFacade.isExistingContent(provider.getName(), "38"));
+		} finally {
+			provider.destroy();
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testGetContentUrlsOfDirectoryAndGlob() throws IOException, URISyntaxException {
+		int recordCount = provider.getContentUrls().size();
+
+		File tempDir = Files.createTempDirectory("content-provider-test-").toFile();
+		File firstCsvFile = new File(tempDir, "artcollection.csv");
+		File secondCsvFile = new File(tempDir, "additions.csv");
+		File textFile = new File(tempDir, "notes.txt");
+		copyFileUsingStream(new File(getClass().getClassLoader().getResource("artcollection.csv").toURI()),
+				firstCsvFile);
+		OutputStream os = new FileOutputStream(secondCsvFile);
+		try {
+			os.write(("NO;ARTIST;TITLE;MEDIUM;width;height;Guide;Reserve\n"
+					+ "101;Unknown;Still Life;oil;50;40;90,00;60,00\n"
+					+ "102;Unknown;Harbour;oil;60;40;90,00;60,00\n").getBytes("UTF-8"));
+		} finally {
+			os.close();
+		}
+		copyFileUsingStream(secondCsvFile, textFile);
+
+		try {
+			// all CSV files of the directory are read
+			provider.getInitParams().setProperty("file", tempDir.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SOURCETHREADS, "2");
+			provider.init();
+			assertEquals(recordCount + 2, provider.getContentUrls().size());
+			assertNotNull(provider.createContent("1"));
+			assertNotNull(provider.createContent("102"));
+
+			// the records of a removed file are dropped
+			secondCsvFile.delete();
+			Collection<String> contentUrls = provider.getContentUrls();
+			assertEquals(recordCount, contentUrls.size());
+			assertFalse(contentUrls.contains("101"));
+
+			// only the files that match the glob pattern are read
+			provider.getInitParams().setProperty("file", new File(tempDir, "*.txt").getAbsolutePath());
+			provider.init();
+			contentUrls = provider.getContentUrls();
+			assertEquals(2, contentUrls.size());
+			assertTrue(contentUrls.contains("101"));
+		} finally {
+			firstCsvFile.delete();
+			secondCsvFile.delete();
+			textFile.delete();
+			tempDir.delete();
+		}
+	}
+
+	@Test
+	public void testGetContentUrlsOfCompressedFiles() throws IOException, URISyntaxException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		Collection<String> contentUrls = new HashSet<String>(provider.getContentUrls());
+		Content content = provider.createContent("1");
+
+		File gzipFile = File.createTempFile("content-provider-test-", ".csv.gz");
+		File zipFile = File.createTempFile("content-provider-test-", ".zip");
+		OutputStream os = new GZIPOutputStream(new FileOutputStream(gzipFile));
+		try {
+			copyStream(new FileInputStream(originalFile), os);
+		} finally {
+			os.close();
+		}
+		ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zipFile));
+		try {
+			zos.putNextEntry(new ZipEntry("export/"));
+			zos.putNextEntry(new ZipEntry("export/artcollection.csv"));
+			copyStream(new FileInputStream(originalFile), zos);
+		} finally {
+			zos.close();
+		}
+
+		try {
+			for (File compressedFile : new File[] { gzipFile, zipFile }) {
+				for (String reader : new String[] { "javacsv", "nio" }) {
+					provider.getInitParams().setProperty("file", compressedFile.getAbsolutePath());
+					provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSEREADER, reader);
+					provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, "4");
+					provider.init();
+					assertEquals(contentUrls, new HashSet<String>(provider.getContentUrls()));
+					assertTrue(CsvContentProvider.equalIgnoringModificationDate(content, provider.createContent("1")));
+				}
+			}
+		} finally {
+			gzipFile.delete();
+			zipFile.delete();
+		}
+	}
+
+	@Test
+	public void testParallelParsingEqualsSequentialParsing() {
+		for (String resource : new String[] { "artcollection.csv", "quotedRecords.csv" }) {
+			provider.getInitParams().setProperty("file", getClass().getClassLoader().getResource(resource).toString());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, "1");
+			provider.init();
+			provider.getContentUrls();
+			Map<String, Content> sequentialContents = new HashMap<String, Content>(provider.getContentMap());
+
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, "4");
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSECHUNKSIZE, "1");
+			provider.init();
+			provider.getContentUrls();
+			Map<String, Content> parallelContents = provider.getContentMap();
+
+			assertEquals(sequentialContents.size(), parallelContents.size());
+			for (Content content : sequentialContents.values()) {
+				assertTrue(CsvContentProvider.equalIgnoringModificationDate(content,
+						parallelContents.get(content.getContentUrl())));
+			}
+		}
+
+		assertEquals(5, provider.getContentMap().size());
+		assertEquals("multi\nline\nname", provider.createContent("4").getAttributeByName("NAME").getValue());
+		assertEquals("He said \"hello\"", provider.createContent("2").getAttributeByName("DESCRIPTION").getValue());
+	}
+
+	@Test
+	public void testParallelParsingSkipsEmptyLinesBeforeHeader() throws IOException, URISyntaxException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		String csv = new String(Files.readAllBytes(originalFile.toPath()), "UTF-8");
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			for (String data : new String[] { "\n" + csv, "\r\n" + csv.replace("\n", "\r\n") }) {
+				Files.write(tempCsvFile.toPath(), data.getBytes("UTF-8"));
+
+				provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, "1");
+				provider.init();
+				provider.getContentUrls();
+				Map<String, Content> sequentialContents = new HashMap<String, Content>(provider.getContentMap());
+
+				provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, "4");
+				provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSECHUNKSIZE, "1");
+				provider.init();
+				provider.getContentUrls();
+				Map<String, Content> parallelContents = provider.getContentMap();
+
+				assertEquals(37, sequentialContents.size());
+				assertEquals(sequentialContents.size(), parallelContents.size());
+				for (Content content : sequentialContents.values()) {
+					assertTrue(CsvContentProvider.equalIgnoringModificationDate(content,
+							parallelContents.get(content.getContentUrl())));
+				}
+			}
+		} finally {
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testNioReaderEqualsJavaCsvReader() {
+		for (String resource : new String[] { "artcollection.csv", "quotedRecords.csv", "multiValueTest.csv" }) {
+			provider.getInitParams().setProperty("file", getClass().getClassLoader().getResource(resource).toString());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSEREADER, "javacsv");
+			provider.init();
+			provider.getContentUrls();
+			Map<String, Content> javaCsvContents = new HashMap<String, Content>(provider.getContentMap());
+
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSEREADER, "nio");
+			for (String parseThreads : new String[] { "1", "4" }) {
+				provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, parseThreads);
+				provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSECHUNKSIZE, "1");
+				provider.init();
+				provider.getContentUrls();
+				Map<String, Content> nioContents = provider.getContentMap();
+
+				assertEquals(javaCsvContents.size(), nioContents.size());
+				for (Content content : javaCsvContents.values()) {
+					assertTrue(CsvContentProvider.equalIgnoringModificationDate(content,
+							nioContents.get(content.getContentUrl())));
+				}
+			}
+		}
+
+		// the raw record is the same
+		provider.getInitParams().setProperty("file", getClass().getClassLoader().getResource("artcollection.csv")
+				.toString());
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, "1");
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_CONTENTURLASHASHEDRECORD, "true");
+		provider.init();
+		String expectedContentUrl = "iqser://iqsercsvplugin.sf.net/artwork?SHA-1=fdf004282e243a3cbe13433bbe434d40ef85bf25";
+		assertNotNull(provider.createContent(expectedContentUrl));
+	}
+
+	@Test
+	public void testGetColumnsReusesColumnPlan() throws IOException, URISyntaxException {
+		File csvFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		CsvRecordReader first = CsvRecordReaderType.JAVACSV.open(new FileInputStream(csvFile), ';',
+				Charset.forName("UTF-8"));
+		CsvRecordReader second = CsvRecordReaderType.NIO.open(new FileInputStream(csvFile), ';',
+				Charset.forName("UTF-8"));
+		try {
+			first.readHeaders();
+			second.readHeaders();
+			List<CsvContentProvider.Column> columns = provider.getColumns(first);
+			assertSame(columns, provider.getColumns(second));
+
+			assertEquals(8, columns.size());
+			assertTrue(columns.get(0).isIdColumn());
+			assertFalse(columns.get(0).isKeyColumn());
+			assertTrue(columns.get(6).isKeyColumn());
+			assertEquals("GUIDE", columns.get(6).getAttributeName());
+		} finally {
+			first.close();
+			second.close();
+		}
+	}
+
+	@Test
+	public void testCreateContentUrlEqualsUrlEncoder() throws IOException {
+		provider.getInitParams().setProperty("columns.id", "0,2");
+		provider.getInitParams().setProperty("column.idAsContentUrl", "false");
+		provider.getInitParams().setProperty("content.type", "Art Work/Ä");
+		provider.init();
+
+		String[] values = { "1", "a b+c", "100%&x=y", "Müller ß", "\u20ac \ud83d\ude00 \ud83d", "-_.*~" };
+		for (String value : values) {
+			String contentUrl = provider.createContentUrl(null, "NO", value);
+			assertEquals(String.format("%s/%s?%s=%s", CsvContentProvider.CSV_CONTENT_URI_BASE,
+					URLEncoder.encode("art work/ä", "ISO-8859-1"), "NO", URLEncoder.encode(value, "ISO-8859-1")),
+					contentUrl);
+			assertEquals(contentUrl + "&TITLE+%C4=" + URLEncoder.encode(value, "ISO-8859-1"),
+					provider.createContentUrl(contentUrl, "TITLE Ä", value));
+		}
+	}
+
 	@Test
 	public void testContentUrlAsHashFromRecord_SHA1() throws IOException, URISyntaxException, IQserException {
 		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_CONTENTURLASHASHEDRECORD, "true");
@@ -183,6 +935,33 @@ public class CsvContentProviderTest extends ContentProviderTestCase {
 		Assert.assertEquals(expectedContentUrl, c1.getContentUrl());
 	}
 	
+	@Test
+	public void testContentUrlAsHashFromRecord_MURMUR3() throws Exception {
+		RecordHasher hasher = RecordHasher.getInstance(RecordHasher.MURMUR3_128);
+		assertEquals("6c1b07bc7bbc4be347939ac4a93c437a", String.valueOf(Hex.encodeHex(hasher.hash(
+				"The quick brown fox jumps over the lazy dog".getBytes("UTF-8")))));
+		assertEquals("67f8103e694299624753ebba820bdb92", String.valueOf(Hex.encodeHex(hasher.hash("hell"
+				.getBytes("UTF-8")))));
+
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_CONTENTURLASHASHEDRECORD, "true");
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_DIGESTALGORITHMFORCONTENTURLASHASHEDRECORD,
+				"MURMUR3-128");
+		provider.init();
+		provider.getContentUrls();
+		Map<String, Content> sequentialContents = new HashMap<String, Content>(provider.getContentMap());
+		assertEquals(37, sequentialContents.size());
+		for (String contentUrl : sequentialContents.keySet()) {
+			assertTrue(contentUrl.matches("iqser://iqsercsvplugin.sf.net/artwork\\?MURMUR3-128=[0-9a-f]{32}"));
+		}
+
+		// hashing is thread-safe
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSETHREADS, "4");
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_PARSECHUNKSIZE, "1");
+		provider.init();
+		provider.getContentUrls();
+		assertEquals(sequentialContents.keySet(), provider.getContentMap().keySet());
+	}
+
 	@Test
 	public void testUpdateCsv() throws IOException, URISyntaxException, IQserException {
 		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
@@ -205,12 +984,379 @@ public class CsvContentProviderTest extends ContentProviderTestCase {
 		prepare();
 		provider.doSynchronization();
 		provider.performAction(CsvContentProvider.Action.UPDATE.name(), null, c1);
+		provider.flushUpdates();
 		verify();
 
 		Content c2 = contentProviderFacade.getExistingContent(provider.getName(), "5");
 		Assert.assertTrue("Bruce McLean".equals(c2.getAttributeByName("ARTIST").getValue()));
 	}
 	
+	@Test
+	public void testUpdateCsvInPlaceAndFromOffset() throws IOException, IQserException {
+		File tempDir = Files.createTempDirectory("content-provider-test-").toFile();
+		File tempCsvFile = new File(tempDir, "records.csv");
+		String csv = "NO;ARTIST;TITLE\r\n\r\n1;Ann;Alpha\r\n2;\"Bob; Jr\";Beta\r\n\r\n3;Cid;Gamma";
+		OutputStream os = new FileOutputStream(tempCsvFile);
+		try {
+			os.write(csv.getBytes("UTF-8"));
+		} finally {
+			os.close();
+		}
+
+		try {
+			Properties initParams = new Properties();
+			initParams.setProperty("file", tempCsvFile.getAbsolutePath());
+			initParams.setProperty("columns.id", "0");
+			initParams.setProperty("column.idAsContentUrl", "true");
+			provider = initializeProviderUnderTest(initParams);
+
+			// a record with the same length is overwritten in place
+			Content c1 = provider.createContent("1");
+			c1.getAttributeByName("ARTIST").setValue("Amy");
+			provider.updateCsv(c1);
+			csv = csv.replace("1;Ann;Alpha", "1;Amy;Alpha");
+			assertEquals(csv, readFile(tempCsvFile));
+
+			// the records behind the first record with a different length are rewritten
+			Content c2 = provider.createContent("2");
+			c2.getAttributeByName("TITLE").setValue("Beta Version");
+			Content c3 = provider.createContent("3");
+			c3.getAttributeByName("ARTIST").setValue("Cyd");
+			provider.updateCsv(Arrays.asList(c2, c3));
+			csv = csv.replace("Beta", "Beta Version").replace("Cid", "Cyd");
+			assertEquals(csv, readFile(tempCsvFile));
+
+			// the offsets of the following records have been moved
+			c3.getAttributeByName("ARTIST").setValue("Cydney");
+			provider.updateCsv(c3);
+			csv = csv.replace("Cyd", "Cydney");
+			assertEquals(csv, readFile(tempCsvFile));
+			assertEquals(1, tempDir.list().length);
+		} finally {
+			tempCsvFile.delete();
+			tempDir.delete();
+		}
+	}
+
+	@Test
+	public void testCreateContentFromRecordIndex() throws IOException, URISyntaxException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		File indexFile = new File(tempCsvFile.getPath() + CsvContentProvider.CSV_RECORD_INDEX_SUFFIX);
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_RECORDINDEX, "true");
+			provider.init();
+			provider.getContentUrls();
+			Map<String, Content> contents = new HashMap<String, Content>(provider.getContentMap());
+			assertTrue(indexFile.isFile());
+
+			// after a restart single records are read without parsing the file
+			provider.init();
+			for (Content content : contents.values()) {
+				assertTrue(CsvContentProvider.equalIgnoringModificationDate(content,
+						provider.createContent(content.getContentUrl())));
+			}
+			assertTrue(provider.getContentMap().isEmpty());
+
+			// the index is rebuilt after the file has been changed
+			OutputStream os = new FileOutputStream(tempCsvFile, true);
+			try {
+				os.write("\n38;Unknown;Still Life;oil;50;40;90,00;60,00\n".getBytes("UTF-8"));
+			} finally {
+				os.close();
+			}
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_SYNCMODE, "streaming");
+			provider.init();
+			assertEquals("Still Life", provider.createContent("38").getAttributeByName("TITLE").getValue());
+			assertTrue(CsvContentProvider.equalIgnoringModificationDate(contents.get("5"),
+					provider.createContent("5")));
+
+			// the indexed record has the modification date of the parsed record
+			Assert.assertTrue(tempCsvFile.setLastModified(tempCsvFile.lastModified() + 10000L));
+			long indexedModificationDate = provider.createContent("5").getModificationDate();
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_RECORDINDEX, "false");
+			provider.init();
+			assertEquals(provider.createContent("5").getModificationDate(), indexedModificationDate);
+		} finally {
+			tempCsvFile.delete();
+			indexFile.delete();
+		}
+	}
+
+	@Test
+	public void testPackedContentStorage() throws IOException, URISyntaxException, IQserException {
+		provider.getInitParams().setProperty("file", getClass().getClassLoader().getResource("multiValueTest.csv").toString());
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_MULTIVALUEDELIMITERS, "{\"1\":\",\"}");
+		provider.init();
+		provider.getContentUrls();
+		Map<String, Content> contents = new HashMap<String, Content>(provider.getContentMap());
+
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_CONTENTSTORAGE, "packed");
+		provider.init();
+		provider.getContentUrls();
+		Map<String, Content> packedContents = provider.getContentMap();
+		assertTrue(packedContents instanceof PackedContentMap);
+		assertEquals(contents.size(), packedContents.size());
+		assertEquals(contents.keySet(), packedContents.keySet());
+		for (Content content : contents.values()) {
+			Content packedContent = packedContents.get(content.getContentUrl());
+			assertTrue(CsvContentProvider.equalIgnoringModificationDate(content, packedContent));
+			assertEquals(content.getModificationDate(), packedContent.getModificationDate());
+		}
+		assertTrue(packedContents.get("0").getAttributeByName("VALUES").isMultiValue());
+
+		// replaced and removed records
+		Content c0 = packedContents.get("0");
+		c0.getAttributeByName("VALUES").setValue("4");
+		packedContents.put("0", c0);
+		assertEquals("4", packedContents.get("0").getAttributeByName("VALUES").getValue());
+		packedContents.keySet().remove("0");
+		assertFalse(packedContents.containsKey("0"));
+		assertNull(packedContents.get("0"));
+		assertEquals(contents.size() - 1, packedContents.size());
+	}
+
+	@Test
+	public void testPackedContentMapCompaction() {
+		PackedContentMap map = new PackedContentMap(1024);
+		for (int i = 0; i < 1000; i++) {
+			Content content = new Content();
+			content.setContentUrl(String.valueOf(i));
+			content.setFulltext("Record " + i);
+			content.addAttribute(new Attribute("NUMBER", String.valueOf(i), Attribute.ATTRIBUTE_TYPE_TEXT, true));
+			map.put(content.getContentUrl(), content);
+		}
+		long capacity = map.getCapacity();
+		for (Iterator<String> contentUrls = map.keySet().iterator(); contentUrls.hasNext();) {
+			if (0 != Integer.parseInt(contentUrls.next()) % 10) {
+				contentUrls.remove();
+			}
+		}
+		assertEquals(100, map.size());
+		map.remove("5");
+		map.remove("10");
+		assertTrue(map.getCapacity() < capacity);
+		assertEquals(99, map.size());
+		assertNull(map.get("10"));
+		assertEquals("Record 990", map.get("990").getFulltext());
+		assertEquals("20", map.get("20").getAttributeByName("NUMBER").getValue());
+	}
+
+	@Test
+	public void testValueDictionaries() {
+		provider.init();
+		provider.getContentUrls();
+		Map<String, ValueDictionary> dictionaries = provider.getValueDictionaries();
+		assertFalse(dictionaries.containsKey("NO"));
+
+		ValueDictionary medium = dictionaries.get("MEDIUM");
+		assertTrue(medium.isOpen());
+		assertTrue(medium.size() < provider.getContentMap().size());
+		assertTrue(0.5 < medium.getHitRate());
+		assertSame(provider.getContentMap().get("1").getAttributeByName("MEDIUM").getValues().get(0), provider
+				.getContentMap().get("2").getAttributeByName("MEDIUM").getValues().get(0));
+
+		// columns with more distinct values than the cutoff are not encoded
+		provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_DICTIONARYSIZE, "2");
+		provider.init();
+		provider.getContentUrls();
+		assertFalse(provider.getValueDictionaries().get("TITLE").isOpen());
+		assertEquals("oil", provider.getContentMap().get("1").getAttributeByName("MEDIUM").getValue());
+	}
+
+	@Test
+	public void testQueuedUpdatesAreCoalesced() throws IOException, URISyntaxException, IQserException {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_UPDATEDELAY, "60000");
+			provider.init();
+
+			Content c1 = provider.createContent("5");
+			Content c2 = provider.createContent("6");
+			c1.getAttributeByName("ARTIST").setValue("Bruce McLean");
+			provider.performAction(CsvContentProvider.Action.UPDATE.name(), null, c1);
+			c2.getAttributeByName("TITLE").setValue("Untitled");
+			provider.performAction(CsvContentProvider.Action.UPDATE.name(), null, c2);
+			c1 = provider.createContent("5");
+			c1.getAttributeByName("ARTIST").setValue("Gilbert & George");
+			provider.performAction(CsvContentProvider.Action.UPDATE.name(), null, c1);
+
+			// the updates are written in the background after the delay
+			assertEquals(originalFile.length(), tempCsvFile.length());
+
+			provider.flushUpdates();
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.init();
+			assertEquals("Gilbert & George", provider.createContent("5").getAttributeByName("ARTIST").getValue());
+			assertEquals("Untitled", provider.createContent("6").getAttributeByName("TITLE").getValue());
+		} finally {
+			provider.destroy();
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testQueuedUpdatesOverlapInit() throws Exception {
+		File originalFile = new File(getClass().getClassLoader().getResource("artcollection.csv").toURI());
+		File tempCsvFile = File.createTempFile("content-provider-test-", ".csv");
+		copyFileUsingStream(originalFile, tempCsvFile);
+
+		try {
+			provider.getInitParams().setProperty("file", tempCsvFile.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_UPDATEDELAY, "60000");
+			provider.init();
+
+			final List<Content> updates = new ArrayList<Content>();
+			for (int i = 0; i < 200; i++) {
+				Content content = provider.createContent("6");
+				content.getAttributeByName("TITLE").setValue("Untitled " + i);
+				updates.add(content);
+			}
+
+			// the queue is replaced by every init() while the updates are enqueued
+			final List<RuntimeException> exceptions = new ArrayList<RuntimeException>();
+			final AtomicBoolean enqueued = new AtomicBoolean(false);
+			Thread updater = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (Content content : updates) {
+							provider.enqueueUpdate(content);
+							Thread.yield();
+						}
+					} catch (RuntimeException e) {
+						exceptions.add(e);
+					} finally {
+						enqueued.set(true);
+					}
+				}
+			};
+			updater.start();
+			for (int i = 0; !enqueued.get() || i < 20; i++) {
+				provider.init();
+			}
+			updater.join();
+			assertTrue(exceptions.toString(), exceptions.isEmpty());
+
+			provider.flushUpdates();
+			provider.init();
+			assertEquals("Untitled 199", provider.createContent("6").getAttributeByName("TITLE").getValue());
+		} finally {
+			provider.destroy();
+			tempCsvFile.delete();
+		}
+	}
+
+	@Test
+	public void testQueuedUpdatesOverlapGetContentUrls() throws Exception {
+		File tempDir = Files.createTempDirectory("content-provider-test-").toFile();
+		File firstCsvFile = new File(tempDir, "artcollection.csv");
+		File secondCsvFile = new File(tempDir, "additions.csv");
+		File thirdCsvFile = new File(tempDir, "removals.csv");
+		File textFile = new File(tempDir, "removals.txt");
+		copyFileUsingStream(new File(getClass().getClassLoader().getResource("artcollection.csv").toURI()),
+				firstCsvFile);
+		OutputStream os = new FileOutputStream(secondCsvFile);
+		try {
+			os.write(("NO;ARTIST;TITLE;MEDIUM;width;height;Guide;Reserve\n"
+					+ "101;Unknown;Still Life;oil;50;40;90,00;60,00\n"
+					+ "102;Unknown;Harbour;oil;60;40;90,00;60,00\n").getBytes("UTF-8"));
+		} finally {
+			os.close();
+		}
+		os = new FileOutputStream(textFile);
+		try {
+			os.write(("NO;ARTIST;TITLE;MEDIUM;width;height;Guide;Reserve\n"
+					+ "201;Unknown;Bridge;oil;50;40;90,00;60,00\n").getBytes("UTF-8"));
+		} finally {
+			os.close();
+		}
+
+		try {
+			provider.getInitParams().setProperty("file", tempDir.getAbsolutePath());
+			provider.getInitParams().setProperty(CsvContentProvider.CSV_PROPERTY_UPDATEDELAY, "0");
+			provider.init();
+			int recordCount = provider.getContentUrls().size();
+
+			final List<Content> updates = new ArrayList<Content>();
+			for (int i = 0; i < 200; i++) {
+				Content content = provider.createContent("101");
+				content.getAttributeByName("TITLE").setValue("Still Life " + i);
+				updates.add(content);
+			}
+
+			// the writer thread rewrites the files while the files are read and a file comes and goes
+			final List<LoggingEvent> errors = new ArrayList<LoggingEvent>();
+			AppenderSkeleton errorAppender = new AppenderSkeleton() {
+				@Override
+				protected void append(LoggingEvent event) {
+					synchronized (errors) {
+						errors.add(event);
+					}
+				}
+
+				@Override
+				public boolean requiresLayout() {
+					return false;
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+			errorAppender.setThreshold(Level.ERROR);
+			Logger.getRootLogger().addAppender(errorAppender);
+			final AtomicBoolean enqueued = new AtomicBoolean(false);
+			Thread updater = new Thread() {
+				@Override
+				public void run() {
+					for (Content content : updates) {
+						provider.enqueueUpdate(content);
+						Thread.yield();
+					}
+					enqueued.set(true);
+				}
+			};
+			updater.start();
+			for (int i = 0; !enqueued.get() || i < 20; i++) {
+				if (0 == i % 2) {
+					copyFileUsingStream(textFile, thirdCsvFile);
+				} else {
+					thirdCsvFile.delete();
+				}
+				provider.getContentUrls();
+			}
+			updater.join();
+			provider.flushUpdates();
+			thirdCsvFile.delete();
+			Logger.getRootLogger().removeAppender(errorAppender);
+			assertTrue(String.valueOf(errors.size()), errors.isEmpty());
+
+			assertEquals(recordCount, provider.getContentUrls().size());
+			assertEquals("Still Life 199", provider.createContent("101").getAttributeByName("TITLE").getValue());
+			provider.getInitParams().setProperty("file", tempDir.getAbsolutePath());
+			provider.init();
+			assertEquals(recordCount, provider.getContentUrls().size());
+			assertEquals("Still Life 199", provider.createContent("101").getAttributeByName("TITLE").getValue());
+			assertEquals("Harbour", provider.createContent("102").getAttributeByName("TITLE").getValue());
+		} finally {
+			provider.destroy();
+			firstCsvFile.delete();
+			secondCsvFile.delete();
+			thirdCsvFile.delete();
+			textFile.delete();
+			new File(secondCsvFile.getPath() + CsvContentProvider.CSV_RECORD_INDEX_SUFFIX).delete();
+			tempDir.delete();
+		}
+	}
+
 	@Test
 	public void testReadMultiValuesAsMultiValues() throws IOException, URISyntaxException, IQserException {
 		provider.getInitParams().setProperty("file", getClass().getClassLoader().getResource("multiValueTest.csv").toString());
@@ -249,6 +1395,22 @@ public class CsvContentProviderTest extends ContentProviderTestCase {
 		Assert.assertEquals("1,2,3", c1.getAttributeByName("VALUES").getValue());
 	}
 
+	private static String readFile(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+
+	private static void copyStream(InputStream is, OutputStream os) throws IOException {
+		try {
+			byte[] buffer = new byte[1024];
+			int length;
+			while ((length = is.read(buffer)) > 0) {
+				os.write(buffer, 0, length);
+			}
+		} finally {
+			is.close();
+		}
+	}
+
 	private static void copyFileUsingStream(File source, File dest) throws IOException {
 		InputStream is = null;
 		OutputStream os = null;
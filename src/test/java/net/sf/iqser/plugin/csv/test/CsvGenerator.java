@@ -0,0 +1,198 @@
+package net.sf.iqser.plugin.csv.test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates CSV files for load tests and benchmarks. The first column is a unique numeric id, the second column a name.
+ * The other columns contain words, numbers and multi-valued lists of words in turn. Some values are quoted and contain
+ * the delimiter or quotes. The files are reproducible, the same settings always generate the same file.
+ */
+public class CsvGenerator {
+
+	private static final String[] WORDS = { "oil", "sculpture", "screenprint", "wood engraving", "etching",
+			"lithograph", "watercolour", "photograph", "drawing", "tapestry", "bronze", "ceramic", "collage",
+			"Hardy", "Mandeville", "Pennell", "McLean", "Ärger", "Straße", "Øresund" };
+
+	private final int rows;
+
+	private int columns = 8;
+
+	private double quotedRatio = 0.1;
+
+	private boolean multiValueColumns = true;
+
+	private char delimiter = ';';
+
+	private char multiValueDelimiter = ',';
+
+	private long seed = 42L;
+
+	/**
+	 * @param rows
+	 *            the number of records
+	 */
+	public CsvGenerator(int rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * Sets the number of columns, at least 2.
+	 */
+	public CsvGenerator withColumns(int columns) {
+		this.columns = Math.max(2, columns);
+		return this;
+	}
+
+	/**
+	 * Sets the share of the values that are quoted and contain the delimiter or quotes, between 0 and 1.
+	 */
+	public CsvGenerator withQuotedRatio(double quotedRatio) {
+		this.quotedRatio = quotedRatio;
+		return this;
+	}
+
+	/**
+	 * Sets whether every third column starting with the fourth contains multi-valued lists.
+	 */
+	public CsvGenerator withMultiValueColumns(boolean multiValueColumns) {
+		this.multiValueColumns = multiValueColumns;
+		return this;
+	}
+
+	public CsvGenerator withSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public char getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * Returns the value of the init-param multiValueDelimiters for the multi-valued columns.
+	 */
+	public String getMultiValueDelimiters() {
+		StringBuilder json = new StringBuilder("{");
+		for (int i = 0; i < columns; i++) {
+			if (isMultiValueColumn(i)) {
+				if (1 < json.length()) {
+					json.append(',');
+				}
+				json.append('"').append(i).append("\":\"").append(multiValueDelimiter).append('"');
+			}
+		}
+		return json.append('}').toString();
+	}
+
+	private boolean isMultiValueColumn(int column) {
+		return multiValueColumns && 3 <= column && 0 == column % 3;
+	}
+
+	/**
+	 * Writes the header line and the records to the file with UTF-8 encoding.
+	 */
+	public void write(File file) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+		try {
+			write(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	public void write(Writer writer) throws IOException {
+		writeHeaders(writer);
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			writer.write(record(row, random));
+		}
+	}
+
+	/**
+	 * Writes the header line and the given versions of the records to the file with UTF-8 encoding. A record is left
+	 * out, if its version is negative.
+	 * 
+	 * @see #record(int, int)
+	 */
+	public void write(File file, int[] versions) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 1 << 16);
+		try {
+			writeHeaders(writer);
+			for (int row = 0; row < rows; row++) {
+				if (0 <= versions[row]) {
+					writer.write(record(row, versions[row]));
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void writeHeaders(Writer writer) throws IOException {
+		StringBuilder line = new StringBuilder();
+		line.append("ID").append(delimiter).append("NAME");
+		for (int i = 2; i < columns; i++) {
+			line.append(delimiter).append(isMultiValueColumn(i) ? "TAGS_" : "COLUMN_").append(i);
+		}
+		writer.write(line.append('\n').toString());
+	}
+
+	/**
+	 * Returns a version of the record with the given row number, including the line terminator. Other than the records
+	 * of {@link #write(Writer)}, every version of a record is generated independently of the other records, so that
+	 * single records can be modified.
+	 */
+	public String record(int row, int version) {
+		return record(row, new Random(seed + 31L * (31L * row + version)));
+	}
+
+	/**
+	 * Returns the record with the given row number, including the line terminator.
+	 */
+	public String record(int row, Random random) {
+		StringBuilder line = new StringBuilder();
+		line.append(row + 1).append(delimiter);
+		appendValue(line, "Name " + WORDS[random.nextInt(WORDS.length)] + ' ' + row, random);
+		for (int i = 2; i < columns; i++) {
+			line.append(delimiter);
+			if (isMultiValueColumn(i)) {
+				int values = 1 + random.nextInt(4);
+				StringBuilder list = new StringBuilder();
+				for (int j = 0; j < values; j++) {
+					if (0 < j) {
+						list.append(multiValueDelimiter);
+					}
+					list.append(WORDS[random.nextInt(WORDS.length)]);
+				}
+				appendValue(line, list.toString(), random);
+			} else if (0 == i % 2) {
+				line.append(random.nextInt(100000));
+			} else {
+				appendValue(line, WORDS[random.nextInt(WORDS.length)], random);
+			}
+		}
+		return line.append('\n').toString();
+	}
+
+	private void appendValue(StringBuilder line, String value, Random random) {
+		if (random.nextDouble() < quotedRatio) {
+			line.append('"').append(value).append(delimiter).append(" \"\"quoted\"\"\"");
+		} else {
+			line.append(value);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package net.sf.iqser.plugin.csv.test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.iqser.core.exception.IQserException;
+import com.iqser.core.model.Content;
+import com.iqser.core.plugin.provider.ContentProviderFacade;
+
+/**
+ * In-memory repository for load tests. Unlike {@link MockContentProviderFacade} the content objects are indexed by
+ * provider and ContentUrl, so that every call takes constant time, and calls of several threads do not block each
+ * other. Every call waits for the configured latency, to simulate a remote repository.
+ */
+public class IndexedContentProviderFacade implements ContentProviderFacade {
+
+	private final ConcurrentMap<String, ConcurrentMap<String, Content>> contents = new ConcurrentHashMap<String, ConcurrentMap<String, Content>>();
+
+	private final long latencyNanos;
+
+	private final AtomicLong calls = new AtomicLong();
+
+	public IndexedContentProviderFacade() {
+		this(0L);
+	}
+
+	/**
+	 * @param latencyNanos
+	 *            the time in nanoseconds every call waits
+	 */
+	public IndexedContentProviderFacade(long latencyNanos) {
+		this.latencyNanos = latencyNanos;
+	}
+
+	/**
+	 * Returns the number of calls.
+	 */
+	public long getCalls() {
+		return calls.get();
+	}
+
+	/**
+	 * Returns the number of content objects of the provider.
+	 */
+	public int size(String provider) {
+		Map<String, Content> providerContents = contents.get(provider);
+		return null != providerContents ? providerContents.size() : 0;
+	}
+
+	private ConcurrentMap<String, Content> getProviderContents(String provider) {
+		ConcurrentMap<String, Content> providerContents = contents.get(provider);
+		if (null == providerContents) {
+			providerContents = new ConcurrentHashMap<String, Content>();
+			ConcurrentMap<String, Content> existingContents = contents.putIfAbsent(provider, providerContents);
+			if (null != existingContents) {
+				providerContents = existingContents;
+			}
+		}
+		return providerContents;
+	}
+
+	private void call() {
+		calls.incrementAndGet();
+		if (0L < latencyNanos) {
+			long deadline = System.nanoTime() + latencyNanos;
+			for (long remaining = latencyNanos; 0L < remaining; remaining = deadline - System.nanoTime()) {
+				LockSupport.parkNanos(remaining);
+			}
+		}
+	}
+
+	@Override
+	public Collection<Content> getExistingContents(String provider) throws IQserException {
+		call();
+		return new ArrayList<Content>(getProviderContents(provider).values());
+	}
+
+	@Override
+	public boolean isExistingContent(String provider, String contentUrl) throws IQserException {
+		call();
+		return getProviderContents(provider).containsKey(contentUrl);
+	}
+
+	@Override
+	public Content getExistingContent(String provider, String contentUrl) throws IQserException {
+		call();
+		return getProviderContents(provider).get(contentUrl);
+	}
+
+	@Override
+	public void addContent(Content content) throws IQserException {
+		call();
+		getProviderContents(content.getProvider()).put(content.getContentUrl(), content);
+	}
+
+	@Override
+	public void updateContent(Content content) throws IQserException {
+		call();
+		getProviderContents(content.getProvider()).replace(content.getContentUrl(), content);
+	}
+
+	@Override
+	public void removeContent(String provider, String contentUrl) throws IQserException {
+		call();
+		getProviderContents(provider).remove(contentUrl);
+	}
+}
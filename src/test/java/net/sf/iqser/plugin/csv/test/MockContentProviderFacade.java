@@ -17,12 +17,12 @@ public class MockContentProviderFacade implements ContentProviderFacade {
 	}
 
 	@Override
-	public Collection<Content> getExistingContents(String arg0) throws IQserException {
+	public synchronized Collection<Content> getExistingContents(String arg0) throws IQserException {
 		return new ArrayList<Content>(contents);
 	}
 
 	@Override
-	public boolean isExistingContent(String arg0, String arg1) throws IQserException {
+	public synchronized boolean isExistingContent(String arg0, String arg1) throws IQserException {
 		Iterator<Content> cIter = contents.iterator();
 
 		while (cIter.hasNext()) {
@@ -37,7 +37,7 @@ public class MockContentProviderFacade implements ContentProviderFacade {
 	}
 
 	@Override
-	public void removeContent(String arg0, String arg1) throws IQserException {
+	public synchronized void removeContent(String arg0, String arg1) throws IQserException {
 		Iterator<Content> cIter = contents.iterator();
 
 		while (cIter.hasNext()) {
@@ -51,12 +51,12 @@ public class MockContentProviderFacade implements ContentProviderFacade {
 	}
 
 	@Override
-	public void addContent(Content arg0) throws IQserException {
+	public synchronized void addContent(Content arg0) throws IQserException {
 		contents.add(arg0);
 	}
 
 	@Override
-	public Content getExistingContent(String arg0, String arg1) throws IQserException {
+	public synchronized Content getExistingContent(String arg0, String arg1) throws IQserException {
 		Iterator<Content> cIter = contents.iterator();
 
 		while (cIter.hasNext()) {
@@ -71,7 +71,7 @@ public class MockContentProviderFacade implements ContentProviderFacade {
 	}
 
 	@Override
-	public void updateContent(Content arg0) throws IQserException {
+	public synchronized void updateContent(Content arg0) throws IQserException {
 		Iterator<Content> cIter = contents.iterator();
 		while (cIter.hasNext()) {
 			Content c = cIter.next();
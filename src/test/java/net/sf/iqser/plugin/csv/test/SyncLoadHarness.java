@@ -0,0 +1,329 @@
+package net.sf.iqser.plugin.csv.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+import net.sf.iqser.plugin.csv.CsvContentProvider;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+
+import com.iqser.core.config.ServiceLocatorFactory;
+import com.iqser.gin.developer.test.TestServiceLocator;
+
+/**
+ * Load test of the synchronization. Generates a CSV file and synchronizes it with an
+ * {@link IndexedContentProviderFacade} in repeated cycles. Before every cycle a share of the records given by the
+ * mutation rate is modified, removed or added again. A cycle reads the modified file and runs doSynchronization() and
+ * doHousekeeping(), like a cycle triggered by the file watcher. Reports the percentiles of the cycle durations, the
+ * throughput and the peak heap usage.
+ *
+ * <pre>
+ * java net.sf.iqser.plugin.csv.test.SyncLoadHarness [rows [cycles [mutationRate [latencyMicros]]]]
+ * </pre>
+ */
+public class SyncLoadHarness {
+
+	/* The share of the mutated records, which are removed or added again instead of modified. */
+	private static final double REMOVAL_RATIO = 0.1;
+
+	private final CsvGenerator generator;
+
+	private int cycles = 10;
+
+	private double mutationRate = 0.01;
+
+	private long latencyNanos = 0L;
+
+	private Properties initParams = new Properties();
+
+	private long seed = 42L;
+
+	/**
+	 * @param generator
+	 *            the generator of the CSV file
+	 */
+	public SyncLoadHarness(CsvGenerator generator) {
+		this.generator = generator;
+	}
+
+	/**
+	 * Sets the number of measured cycles, after the initial synchronization.
+	 */
+	public SyncLoadHarness withCycles(int cycles) {
+		this.cycles = cycles;
+		return this;
+	}
+
+	/**
+	 * Sets the share of the records that are mutated before every cycle, between 0 and 1.
+	 */
+	public SyncLoadHarness withMutationRate(double mutationRate) {
+		this.mutationRate = mutationRate;
+		return this;
+	}
+
+	/**
+	 * Sets the latency of every call of the repository in nanoseconds.
+	 */
+	public SyncLoadHarness withLatency(long latencyNanos) {
+		this.latencyNanos = latencyNanos;
+		return this;
+	}
+
+	/**
+	 * Sets additional init-params of the provider, e.g. the number of synchronization threads.
+	 */
+	public SyncLoadHarness withInitParams(Properties initParams) {
+		this.initParams = initParams;
+		return this;
+	}
+
+	public SyncLoadHarness withSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * Runs the initial synchronization and the measured cycles with a temporary CSV file.
+	 */
+	public Report run() throws IOException {
+		File file = File.createTempFile("sync-load-", ".csv");
+		try {
+			return run(file);
+		} finally {
+			file.delete();
+			new File(file.getPath() + CsvContentProvider.CSV_RECORD_INDEX_SUFFIX).delete();
+		}
+	}
+
+	private Report run(File file) throws IOException {
+		int rows = generator.getRows();
+		int[] versions = new int[rows];
+		generator.write(file, versions);
+		int liveRows = rows;
+
+		IndexedContentProviderFacade facade = new IndexedContentProviderFacade(latencyNanos);
+		((TestServiceLocator) ServiceLocatorFactory.getServiceLocator()).setContentProviderFacade(facade);
+		CsvContentProvider provider = new CsvContentProvider();
+		provider.setInitParams(getInitParams(file));
+		provider.setName("CSV-LOAD-" + Long.toHexString(System.nanoTime()));
+		provider.init();
+
+		Random random = new Random(seed);
+		long[] durations = new long[cycles];
+		long syncedRows = 0L;
+		try {
+			long initialDuration = runCycle(provider);
+			resetPeakHeapUsage();
+			for (int cycle = 0; cycle < cycles; cycle++) {
+				liveRows += mutate(versions, random);
+				generator.write(file, versions);
+				// the modification date has a resolution of a second on some file systems
+				file.setLastModified(Math.max(System.currentTimeMillis(), file.lastModified() + 1000L));
+
+				durations[cycle] = runCycle(provider);
+				syncedRows += liveRows;
+			}
+			if (facade.size(provider.getName()) != liveRows) {
+				throw new IllegalStateException(String.format("%d content objects in the repository, expected %d",
+						facade.size(provider.getName()), liveRows));
+			}
+			return new Report(initialDuration, durations, syncedRows, getPeakHeapUsage(), liveRows, facade.getCalls());
+		} finally {
+			provider.destroy();
+		}
+	}
+
+	private Properties getInitParams(File file) {
+		Properties providerInitParams = new Properties();
+		providerInitParams.setProperty("file", file.getAbsolutePath());
+		providerInitParams.setProperty("delimeter", String.valueOf(generator.getDelimiter()));
+		providerInitParams.setProperty("charset", "UTF-8");
+		providerInitParams.setProperty("columns.id", "0");
+		providerInitParams.setProperty("column.idAsContentUrl", "true");
+		providerInitParams.setProperty("column.name", "1");
+		providerInitParams.setProperty("columns.key", "1,2");
+		providerInitParams.setProperty("content.type", "Load");
+		providerInitParams.setProperty(CsvContentProvider.CSV_PROPERTY_MULTIVALUEDELIMITERS,
+				generator.getMultiValueDelimiters());
+		providerInitParams.putAll(initParams);
+		return providerInitParams;
+	}
+
+	/*
+	 * Mutates the given share of the records and returns the change of the number of records. A negative version
+	 * marks a removed record, which gets its next version when it is added again.
+	 */
+	private int mutate(int[] versions, Random random) {
+		int mutations = (int) Math.round(mutationRate * versions.length);
+		int change = 0;
+		for (int i = 0; i < mutations; i++) {
+			int row = random.nextInt(versions.length);
+			if (0 > versions[row]) {
+				versions[row] = -versions[row];
+				change++;
+			} else if (random.nextDouble() < REMOVAL_RATIO) {
+				versions[row] = -versions[row] - 1;
+				change--;
+			} else {
+				versions[row]++;
+			}
+		}
+		return change;
+	}
+
+	private long runCycle(CsvContentProvider provider) {
+		long startTime = System.nanoTime();
+		provider.getContentUrls();
+		provider.doSynchronization();
+		provider.doHousekeeping();
+		return System.nanoTime() - startTime;
+	}
+
+	private static void resetPeakHeapUsage() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (MemoryType.HEAP == pool.getType()) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	/*
+	 * The sum of the peaks of the heap memory pools, which is an upper bound of the peak heap usage, since the pools
+	 * do not reach their peaks at the same time.
+	 */
+	private static long getPeakHeapUsage() {
+		long peakHeapUsage = 0L;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (MemoryType.HEAP == pool.getType() && null != pool.getPeakUsage()) {
+				peakHeapUsage += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peakHeapUsage;
+	}
+
+	/**
+	 * The results of a load test.
+	 */
+	public static class Report {
+
+		private final long initialDuration;
+
+		private final long[] durations;
+
+		private final long syncedRows;
+
+		private final long peakHeapUsage;
+
+		private final int rows;
+
+		private final long repositoryCalls;
+
+		Report(long initialDuration, long[] durations, long syncedRows, long peakHeapUsage, int rows,
+				long repositoryCalls) {
+			this.initialDuration = initialDuration;
+			this.durations = durations.clone();
+			Arrays.sort(this.durations);
+			this.syncedRows = syncedRows;
+			this.peakHeapUsage = peakHeapUsage;
+			this.rows = rows;
+			this.repositoryCalls = repositoryCalls;
+		}
+
+		/**
+		 * Returns the duration of the initial synchronization in ms.
+		 */
+		public double getInitialDuration() {
+			return initialDuration / 1e6;
+		}
+
+		public int getCycles() {
+			return durations.length;
+		}
+
+		/**
+		 * Returns the percentile of the cycle durations in ms, using the nearest rank.
+		 *
+		 * @param percentile
+		 *            the percentile between 0 and 100
+		 */
+		public double getPercentile(double percentile) {
+			if (0 == durations.length) {
+				return 0.0;
+			}
+			int rank = (int) Math.ceil(percentile / 100.0 * durations.length);
+			return durations[Math.min(durations.length - 1, Math.max(0, rank - 1))] / 1e6;
+		}
+
+		public double getP50() {
+			return getPercentile(50.0);
+		}
+
+		public double getP99() {
+			return getPercentile(99.0);
+		}
+
+		/**
+		 * Returns the number of records in the file per second of the measured cycles.
+		 */
+		public double getRowsPerSecond() {
+			long totalDuration = 0L;
+			for (long duration : durations) {
+				totalDuration += duration;
+			}
+			return 0L < totalDuration ? syncedRows * 1e9 / totalDuration : 0.0;
+		}
+
+		/**
+		 * Returns the peak heap usage of the measured cycles in bytes.
+		 */
+		public long getPeakHeapUsage() {
+			return peakHeapUsage;
+		}
+
+		/**
+		 * Returns the number of records after the last cycle.
+		 */
+		public int getRows() {
+			return rows;
+		}
+
+		public long getRepositoryCalls() {
+			return repositoryCalls;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d rows, initial sync %.1f ms, %d cycles: p50 %.1f ms, p99 %.1f ms, %.0f rows/s, "
+					+ "peak heap %d MB, %d repository calls", rows, getInitialDuration(), getCycles(), getP50(),
+					getP99(), getRowsPerSecond(), peakHeapUsage >> 20, repositoryCalls);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int rows = 0 < args.length ? Integer.parseInt(args[0]) : 100000;
+		int cycles = 1 < args.length ? Integer.parseInt(args[1]) : 20;
+		double mutationRate = 2 < args.length ? Double.parseDouble(args[2]) : 0.01;
+		long latencyMicros = 3 < args.length ? Long.parseLong(args[3]) : 0L;
+
+		// the per-record log messages would dominate the measurements
+		LogManager.getLoggerRepository().setThreshold(Level.WARN);
+		Properties initParams = new Properties();
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith("csv.")) {
+				initParams.setProperty(name.substring(4), System.getProperty(name));
+			}
+		}
+
+		Report report = new SyncLoadHarness(new CsvGenerator(rows)).withCycles(cycles)
+				.withMutationRate(mutationRate).withLatency(latencyMicros * 1000L).withInitParams(initParams).run();
+		System.out.println(report);
+	}
+}